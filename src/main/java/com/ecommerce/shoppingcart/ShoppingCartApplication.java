@@ -2,10 +2,12 @@ package com.ecommerce.shoppingcart;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ShoppingCartApplication {
-
+    
     public static void main(String[] args) {
         SpringApplication.run(ShoppingCartApplication.class, args);
     }
@@ -0,0 +1,28 @@
+package com.ecommerce.shoppingcart.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Settings that only apply while checkouts go through the group commit queue
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.order.group-commit.enabled", havingValue = "true")
+public class GroupCommitConfig {
+    
+    /**
+     * With open-in-view, a request keeps the connection its session first used until the
+     * response is written. A checkout parked on the queue would hold one while the
+     * worker waits for a connection of its own, and a burst as large as the pool stalls
+     * every checkout. Connections go back to the pool after each transaction instead.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
\ No newline at end of file
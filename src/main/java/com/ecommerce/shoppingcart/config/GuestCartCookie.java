@@ -0,0 +1,81 @@
+package com.ecommerce.shoppingcart.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * The cookie that identifies a guest cart. It holds a random token and is only set
+ * once a visitor adds something to the cart, so browsing creates no cookie, session
+ * or cart.
+ */
+@Component
+public class GuestCartCookie {
+    
+    public static final String NAME = "GUEST_CART";
+    
+    // 32 random bytes, base64url without padding
+    private static final Pattern TOKEN = Pattern.compile("[A-Za-z0-9_-]{43}");
+    
+    private final SecureRandom random = new SecureRandom();
+    private final Duration maxAge;
+    
+    public GuestCartCookie(@Value("${app.cart.guest.ttl-minutes:1440}") long ttlMinutes) {
+        this.maxAge = Duration.ofMinutes(ttlMinutes);
+    }
+    
+    /**
+     * The guest cart token of the request, or null if it has none or a malformed one
+     */
+    public String resolve(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (NAME.equals(cookie.getName()) && TOKEN.matcher(cookie.getValue()).matches()) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * The request's token, issuing a new cookie when it has none
+     */
+    public String resolveOrIssue(HttpServletRequest request, HttpServletResponse response) {
+        String token = resolve(request);
+        if (token == null) {
+            byte[] bytes = new byte[32];
+            random.nextBytes(bytes);
+            token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        }
+        // refreshed on every use so the cookie lives as long as the cart
+        write(request, response, token, maxAge);
+        return token;
+    }
+    
+    public void clear(HttpServletRequest request, HttpServletResponse response) {
+        write(request, response, "", Duration.ZERO);
+    }
+    
+    private void write(HttpServletRequest request, HttpServletResponse response, String value, Duration age) {
+        ResponseCookie cookie = ResponseCookie.from(NAME, value)
+                .path("/")
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Lax")
+                .maxAge(age)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+}
\ No newline at end of file
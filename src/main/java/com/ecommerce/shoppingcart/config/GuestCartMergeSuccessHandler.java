@@ -0,0 +1,54 @@
+package com.ecommerce.shoppingcart.config;
+
+import com.ecommerce.shoppingcart.service.CartService;
+import com.ecommerce.shoppingcart.service.UserService;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * After a form login, move the visitor's guest cart into their own cart and drop the
+ * guest cart cookie, then continue to the home page as before.
+ */
+@Component
+public class GuestCartMergeSuccessHandler extends SimpleUrlAuthenticationSuccessHandler {
+    
+    private static final Logger log = LoggerFactory.getLogger(GuestCartMergeSuccessHandler.class);
+    
+    private final CartService cartService;
+    private final UserService userService;
+    private final GuestCartCookie guestCartCookie;
+    
+    public GuestCartMergeSuccessHandler(CartService cartService, UserService userService,
+                                        GuestCartCookie guestCartCookie) {
+        super("/");
+        setAlwaysUseDefaultTargetUrl(true);
+        this.cartService = cartService;
+        this.userService = userService;
+        this.guestCartCookie = guestCartCookie;
+    }
+    
+    @Override
+    public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
+                                        Authentication authentication) throws IOException, ServletException {
+        String guestToken = guestCartCookie.resolve(request);
+        if (guestToken != null) {
+            try {
+                userService.findByUsername(authentication.getName())
+                        .ifPresent(user -> cartService.mergeGuestCart(user, guestToken));
+                guestCartCookie.clear(request, response);
+            } catch (RuntimeException e) {
+                // the guest cart was put back; keeping the cookie lets the next login merge it
+                log.warn("Could not merge the guest cart of {}", authentication.getName(), e);
+            }
+        }
+        super.onAuthenticationSuccess(request, response, authentication);
+    }
+}
\ No newline at end of file
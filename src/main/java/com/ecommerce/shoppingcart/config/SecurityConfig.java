@@ -7,6 +7,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 
 @Configuration
 @EnableWebSecurity
@@ -18,17 +19,19 @@ public class SecurityConfig {
     }
     
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           GuestCartMergeSuccessHandler guestCartMergeSuccessHandler) throws Exception {
         http
             .authorizeHttpRequests(authz -> authz
                 .requestMatchers("/", "/products", "/products/**", "/register", "/login", 
-                                "/css/**", "/js/**", "/images/**", "/h2-console/**", "/api/products/**").permitAll()
+                                "/css/**", "/js/**", "/images/**", "/h2-console/**", "/api/products/**",
+                                "/cart", "/cart/**").permitAll()
                 .requestMatchers("/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .formLogin(form -> form
                 .loginPage("/login")
-                .defaultSuccessUrl("/", true)
+                .successHandler(guestCartMergeSuccessHandler)
                 .failureUrl("/login?error")
                 .permitAll()
             )
@@ -37,13 +40,17 @@ public class SecurityConfig {
                 .logoutSuccessUrl("/")
                 .permitAll()
             )
+            // the catalog API is read-only; the cart API changes state with the session
+            // cookie, so it needs the CSRF token like a form post. The token is kept in a
+            // cookie rather than the session so anonymous visitors never get a session
             .csrf(csrf -> csrf
-                .ignoringRequestMatchers("/h2-console/**", "/api/**")
+                .csrfTokenRepository(new CookieCsrfTokenRepository())
+                .ignoringRequestMatchers("/h2-console/**", "/api/products/**")
             )
             .headers(headers -> headers
                 .frameOptions(frameOptions -> frameOptions.sameOrigin())  // For H2 console
             );
-            
+        
         return http.build();
     }
 }
\ No newline at end of file
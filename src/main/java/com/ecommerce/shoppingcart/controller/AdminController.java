@@ -1,15 +1,20 @@
 package com.ecommerce.shoppingcart.controller;
 
+import com.ecommerce.shoppingcart.dto.CursorPage;
+import com.ecommerce.shoppingcart.dto.OrderSearchFilter;
+import com.ecommerce.shoppingcart.dto.OrderSummary;
 import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.Payment;
 import com.ecommerce.shoppingcart.model.Product;
 import com.ecommerce.shoppingcart.model.User;
+import com.ecommerce.shoppingcart.repository.ProductSortKey;
 import com.ecommerce.shoppingcart.service.OrderService;
 import com.ecommerce.shoppingcart.service.ProductService;
 import com.ecommerce.shoppingcart.service.UserService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -18,6 +23,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import jakarta.validation.Valid;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -75,33 +82,50 @@ public class AdminController {
             @RequestParam(defaultValue = "name") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir,
             @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean count,
             Model model, Authentication authentication) {
         
         if (!isAdmin(authentication)) {
             return "redirect:/products?error=access_denied";
         }
         
-        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-                   Sort.by(sortBy).descending() : 
-                   Sort.by(sortBy).ascending();
-        Pageable pageable = PageRequest.of(page, size, sort);
-        
-        Page<Product> productPage;
-        if (search != null && !search.trim().isEmpty()) {
-            productPage = productService.searchProducts(search.trim(), pageable);
-            model.addAttribute("searchKeyword", search);
-        } else {
-            productPage = productService.getAllProductsIncludingInactive(pageable);
+        if (!ProductSortKey.isSupported(sortBy)) {
+            return "redirect:/admin/products?error=invalid_sort";
         }
+        ProductSortKey sortKey = ProductSortKey.fromParameter(sortBy);
+        boolean descending = sortDir.equalsIgnoreCase("desc");
+        
+        model.addAttribute("size", size);
+        model.addAttribute("sortBy", sortBy);
+        model.addAttribute("sortDir", sortDir);
+        
+        boolean searching = search != null && !search.trim().isEmpty();
+        if (!searching) {
+            CursorPage<Product> slice;
+            try {
+                slice = productService.getCatalogPage(null, true, sortKey, descending, cursor, size, count);
+            } catch (IllegalArgumentException e) {
+                return "redirect:/admin/products?error=invalid_page";
+            }
+            
+            model.addAttribute("keysetMode", true);
+            model.addAttribute("products", slice.items());
+            model.addAttribute("nextCursor", slice.nextCursor());
+            model.addAttribute("previousCursor", slice.previousCursor());
+            model.addAttribute("totalElements", slice.totalElements());
+            return "admin/products";
+        }
+        
+        Pageable pageable = PageRequest.of(page, size, sortKey.toSort(descending));
+        Page<Product> productPage = productService.searchProducts(search.trim(), pageable);
+        model.addAttribute("searchKeyword", search);
         
         model.addAttribute("productPage", productPage);
         model.addAttribute("products", productPage.getContent());
         model.addAttribute("currentPage", page);
         model.addAttribute("totalPages", productPage.getTotalPages());
         model.addAttribute("totalElements", productPage.getTotalElements());
-        model.addAttribute("size", size);
-        model.addAttribute("sortBy", sortBy);
-        model.addAttribute("sortDir", sortDir);
         
         return "admin/products";
     }
@@ -243,30 +267,37 @@ public class AdminController {
     // Order Management
     @GetMapping("/orders")
     public String manageOrders(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime placedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime placedTo,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) Payment.PaymentStatus paymentStatus,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
             Model model, Authentication authentication) {
         
         if (!isAdmin(authentication)) {
             return "redirect:/products?error=access_denied";
         }
         
-        Pageable pageable = PageRequest.of(page, size, Sort.by("orderDate").descending());
-        
-        Page<Order> orderPage;
-        if (status != null) {
-            orderPage = orderService.getOrdersByStatus(status, pageable);
-            model.addAttribute("selectedStatus", status);
-        } else {
-            orderPage = orderService.getAllOrders(pageable);
+        OrderSearchFilter filter = new OrderSearchFilter(status, placedFrom, placedTo,
+                username != null && !username.isBlank() ? username.trim() : null,
+                minAmount, maxAmount, paymentStatus);
+        CursorPage<OrderSummary> slice;
+        try {
+            slice = orderService.searchOrders(filter, cursor, size);
+        } catch (IllegalArgumentException e) {
+            return "redirect:/admin/orders?error=invalid_search";
         }
         
-        model.addAttribute("orderPage", orderPage);
-        model.addAttribute("orders", orderPage.getContent());
+        model.addAttribute("filter", filter);
+        model.addAttribute("orders", slice.items());
+        model.addAttribute("nextCursor", slice.nextCursor());
+        model.addAttribute("previousCursor", slice.previousCursor());
         model.addAttribute("orderStatuses", Order.OrderStatus.values());
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", orderPage.getTotalPages());
+        model.addAttribute("paymentStatuses", Payment.PaymentStatus.values());
         model.addAttribute("size", size);
         
         return "admin/orders";
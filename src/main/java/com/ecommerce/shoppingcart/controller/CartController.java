@@ -1,36 +1,46 @@
 package com.ecommerce.shoppingcart.controller;
 
-import com.ecommerce.shoppingcart.model.CartItem;
+import com.ecommerce.shoppingcart.config.GuestCartCookie;
+import com.ecommerce.shoppingcart.dto.CartSnapshot;
 import com.ecommerce.shoppingcart.model.User;
 import com.ecommerce.shoppingcart.service.CartService;
 import com.ecommerce.shoppingcart.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.math.BigDecimal;
-import java.util.List;
 import java.util.Optional;
 
+/**
+ * Cart pages for signed-in users and guests. Guest requests never use flash
+ * attributes, since those would create an HTTP session per visitor.
+ */
 @Controller
 @RequestMapping("/cart")
 public class CartController {
     
     private final CartService cartService;
     private final UserService userService;
+    private final GuestCartCookie guestCartCookie;
     
-    public CartController(CartService cartService, UserService userService) {
+    public CartController(CartService cartService, UserService userService, GuestCartCookie guestCartCookie) {
         this.cartService = cartService;
         this.userService = userService;
+        this.guestCartCookie = guestCartCookie;
     }
     
     @GetMapping
-    public String viewCart(Model model, Authentication authentication) {
-        if (authentication == null || !authentication.isAuthenticated() || 
-            authentication.getName().equals("anonymousUser")) {
-            return "redirect:/login";
+    public String viewCart(Model model, Authentication authentication, HttpServletRequest request) {
+        if (isAnonymous(authentication)) {
+            CartSnapshot cart = cartService.getGuestCartSnapshot(guestCartCookie.resolve(request));
+            model.addAttribute("cartItems", cart.items());
+            model.addAttribute("total", cart.total());
+            model.addAttribute("cartCount", cart.itemCount());
+            return "cart";
         }
         
         Optional<User> userOpt = userService.findByUsername(authentication.getName());
@@ -38,28 +48,26 @@ public class CartController {
             return "redirect:/login";
         }
         
-        User user = userOpt.get();
-        List<CartItem> cartItems = cartService.getCartItems(user);
-        BigDecimal total = cartService.getCartTotal(user);
-        int cartCount = cartService.getCartItemCount(user);
-        
-        model.addAttribute("cartItems", cartItems);
-        model.addAttribute("total", total);
-        model.addAttribute("cartCount", cartCount);
+        CartSnapshot cart = cartService.getCartSnapshot(userOpt.get());
+        model.addAttribute("cartItems", cart.items());
+        model.addAttribute("total", cart.total());
+        model.addAttribute("cartCount", cart.itemCount());
+        model.addAttribute("cartVersion", cart.version());
         
         return "cart";
     }
     
     @PostMapping("/update")
     public String updateCartItem(
-            @RequestParam Long cartItemId,
+            @RequestParam Long productId,
             @RequestParam Integer quantity,
             Authentication authentication,
+            HttpServletRequest request,
             RedirectAttributes redirectAttributes) {
         
-        if (authentication == null || !authentication.isAuthenticated() || 
-            authentication.getName().equals("anonymousUser")) {
-            return "redirect:/login";
+        if (isAnonymous(authentication)) {
+            cartService.updateGuestCartItem(guestCartCookie.resolve(request), productId, quantity);
+            return "redirect:/cart";
         }
         
         Optional<User> userOpt = userService.findByUsername(authentication.getName());
@@ -68,7 +76,7 @@ public class CartController {
         }
         
         try {
-            cartService.updateCartItem(userOpt.get(), cartItemId, quantity);
+            cartService.updateCartItem(userOpt.get(), productId, quantity);
             redirectAttributes.addFlashAttribute("success", "Cart updated successfully");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Failed to update cart");
@@ -79,13 +87,14 @@ public class CartController {
     
     @PostMapping("/remove")
     public String removeFromCart(
-            @RequestParam Long cartItemId,
+            @RequestParam Long productId,
             Authentication authentication,
+            HttpServletRequest request,
             RedirectAttributes redirectAttributes) {
         
-        if (authentication == null || !authentication.isAuthenticated() || 
-            authentication.getName().equals("anonymousUser")) {
-            return "redirect:/login";
+        if (isAnonymous(authentication)) {
+            cartService.removeFromGuestCart(guestCartCookie.resolve(request), productId);
+            return "redirect:/cart";
         }
         
         Optional<User> userOpt = userService.findByUsername(authentication.getName());
@@ -94,7 +103,7 @@ public class CartController {
         }
         
         try {
-            cartService.removeFromCart(userOpt.get(), cartItemId);
+            cartService.removeFromCart(userOpt.get(), productId);
             redirectAttributes.addFlashAttribute("success", "Item removed from cart");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Failed to remove item");
@@ -104,10 +113,12 @@ public class CartController {
     }
     
     @PostMapping("/clear")
-    public String clearCart(Authentication authentication, RedirectAttributes redirectAttributes) {
-        if (authentication == null || !authentication.isAuthenticated() || 
-            authentication.getName().equals("anonymousUser")) {
-            return "redirect:/login";
+    public String clearCart(Authentication authentication, HttpServletRequest request,
+                            HttpServletResponse response, RedirectAttributes redirectAttributes) {
+        if (isAnonymous(authentication)) {
+            cartService.clearGuestCart(guestCartCookie.resolve(request));
+            guestCartCookie.clear(request, response);
+            return "redirect:/cart";
         }
         
         Optional<User> userOpt = userService.findByUsername(authentication.getName());
@@ -124,4 +135,9 @@ public class CartController {
         
         return "redirect:/cart";
     }
+    
+    private static boolean isAnonymous(Authentication authentication) {
+        return authentication == null || !authentication.isAuthenticated() ||
+            authentication.getName().equals("anonymousUser");
+    }
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.ecommerce.shoppingcart.controller;
 
+import com.ecommerce.shoppingcart.dto.CartSnapshot;
+import com.ecommerce.shoppingcart.dto.CursorPage;
 import com.ecommerce.shoppingcart.model.Order;
 import com.ecommerce.shoppingcart.model.User;
 import com.ecommerce.shoppingcart.service.CartService;
+import com.ecommerce.shoppingcart.service.CheckoutQueue;
 import com.ecommerce.shoppingcart.service.OrderService;
 import com.ecommerce.shoppingcart.service.UserService;
 import org.springframework.security.core.Authentication;
@@ -11,7 +14,6 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.List;
 import java.util.Optional;
 
 @Controller
@@ -21,11 +23,14 @@ public class OrderController {
     private final OrderService orderService;
     private final CartService cartService;
     private final UserService userService;
+    private final CheckoutQueue checkoutQueue;
     
-    public OrderController(OrderService orderService, CartService cartService, UserService userService) {
+    public OrderController(OrderService orderService, CartService cartService, UserService userService,
+                           CheckoutQueue checkoutQueue) {
         this.orderService = orderService;
         this.cartService = cartService;
         this.userService = userService;
+        this.checkoutQueue = checkoutQueue;
     }
     
     @GetMapping("/checkout")
@@ -43,12 +48,13 @@ public class OrderController {
         User user = userOpt.get();
         
         // Check if cart is empty
-        if (cartService.getCartItems(user).isEmpty()) {
+        CartSnapshot cart = cartService.getCartSnapshot(user);
+        if (cart.isEmpty()) {
             return "redirect:/cart";
         }
         
-        model.addAttribute("cartItems", cartService.getCartItems(user));
-        model.addAttribute("total", cartService.getCartTotal(user));
+        model.addAttribute("cartItems", cart.items());
+        model.addAttribute("total", cart.total());
         model.addAttribute("user", user);
         
         return "checkout";
@@ -71,17 +77,24 @@ public class OrderController {
         }
         
         try {
-            Order order = orderService.createOrderFromCart(userOpt.get(), shippingAddress);
+            Order order = checkoutQueue.placeOrder(userOpt.get(), shippingAddress);
             redirectAttributes.addFlashAttribute("success", "Order created successfully! Please complete payment.");
             return "redirect:/payment/process/" + order.getId();
         } catch (IllegalArgumentException e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
             return "redirect:/orders/checkout";
+        } catch (IllegalStateException e) {
+            // the order may still be placed, so show the history rather than the checkout form
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+            return "redirect:/orders";
         }
     }
     
     @GetMapping
-    public String orderHistory(Model model, Authentication authentication) {
+    public String orderHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            Model model, Authentication authentication) {
         if (authentication == null || !authentication.isAuthenticated() || 
             authentication.getName().equals("anonymousUser")) {
             return "redirect:/login";
@@ -92,8 +105,16 @@ public class OrderController {
             return "redirect:/login";
         }
         
-        List<Order> orders = orderService.getUserOrders(userOpt.get());
-        model.addAttribute("orders", orders);
+        CursorPage<Order> page;
+        try {
+            page = orderService.getOrderHistory(userOpt.get(), cursor, size);
+        } catch (IllegalArgumentException e) {
+            return "redirect:/orders";
+        }
+        model.addAttribute("orders", page.items());
+        model.addAttribute("nextCursor", page.nextCursor());
+        model.addAttribute("previousCursor", page.previousCursor());
+        model.addAttribute("size", size);
         
         return "order-history";
     }
@@ -110,7 +131,7 @@ public class OrderController {
             return "redirect:/login";
         }
         
-        Optional<Order> orderOpt = orderService.getOrderById(id);
+        Optional<Order> orderOpt = orderService.getOrderWithDetails(id);
         if (orderOpt.isEmpty()) {
             return "redirect:/orders";
         }
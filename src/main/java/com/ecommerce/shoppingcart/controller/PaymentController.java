@@ -4,6 +4,8 @@ import com.ecommerce.shoppingcart.model.Order;
 import com.ecommerce.shoppingcart.model.Payment;
 import com.ecommerce.shoppingcart.service.OrderService;
 import com.ecommerce.shoppingcart.service.PaymentService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -14,6 +16,8 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @RequestMapping("/payment")
 public class PaymentController {
     
+    private static final Logger log = LoggerFactory.getLogger(PaymentController.class);
+    
     private final PaymentService paymentService;
     private final OrderService orderService;
     
@@ -63,27 +67,61 @@ public class PaymentController {
                 return "redirect:/orders";
             }
             
+            // A replayed or stale form must neither take stock nor charge again
+            if (order.getStatus() != Order.OrderStatus.PENDING) {
+                redirectAttributes.addFlashAttribute("error", "Order #" + orderId + " is "
+                        + order.getStatus().name().toLowerCase() + " and cannot be paid again");
+                return "redirect:/orders/" + orderId;
+            }
+            
+            // Hold the stock again if the order sat unpaid past its hold
+            orderService.holdStock(orderId);
+            
             // Process payment
             Payment payment = paymentService.processPayment(order, paymentMethod, paymentDetails);
             
             // Update order status based on payment result
             if (payment.getPaymentStatus() == Payment.PaymentStatus.COMPLETED) {
-                orderService.updateOrderStatus(orderId, Order.OrderStatus.CONFIRMED);
+                try {
+                    orderService.confirmPayment(orderId, payment);
+                } catch (RuntimeException e) {
+                    return refundUnconfirmed(orderId, payment, e, redirectAttributes);
+                }
                 redirectAttributes.addFlashAttribute("success", 
                     "Payment successful! Transaction ID: " + payment.getTransactionId());
                 return "redirect:/orders/" + orderId;
             } else {
+                orderService.releaseStock(orderId);
                 redirectAttributes.addFlashAttribute("error", 
                     "Payment failed: " + payment.getGatewayResponse());
                 return "redirect:/payment/process/" + orderId;
             }
-            
+        
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Payment processing failed: " + e.getMessage());
             return "redirect:/payment/process/" + orderId;
         }
     }
     
+    // The customer has been charged but the order could not take its stock, for example
+    // because a hold expired and the item sold out meanwhile. The charge is refunded and
+    // the stock given back, and the customer is not sent back to pay again.
+    private String refundUnconfirmed(Long orderId, Payment payment, RuntimeException cause,
+                                     RedirectAttributes redirectAttributes) {
+        try {
+            paymentService.refundPayment(payment.getId());
+            orderService.releaseStock(orderId);
+            redirectAttributes.addFlashAttribute("error", "Your order could not be confirmed: " + cause.getMessage()
+                    + ". Payment " + payment.getTransactionId() + " has been refunded.");
+        } catch (RuntimeException e) {
+            log.error("Payment {} of order {} was taken but could neither confirm the order nor be refunded",
+                    payment.getTransactionId(), orderId, e);
+            redirectAttributes.addFlashAttribute("error", "Your order could not be confirmed after payment "
+                    + payment.getTransactionId() + " was taken. Please contact support; do not pay again.");
+        }
+        return "redirect:/orders/" + orderId;
+    }
+    
     @GetMapping("/status/{transactionId}")
     public String checkPaymentStatus(@PathVariable String transactionId, Model model) {
         try {
@@ -1,11 +1,18 @@
 package com.ecommerce.shoppingcart.controller;
 
+import com.ecommerce.shoppingcart.config.GuestCartCookie;
+import com.ecommerce.shoppingcart.dto.CursorPage;
+import com.ecommerce.shoppingcart.dto.FacetFilter;
+import com.ecommerce.shoppingcart.dto.PriceBucket;
 import com.ecommerce.shoppingcart.model.Product;
 import com.ecommerce.shoppingcart.model.User;
+import com.ecommerce.shoppingcart.repository.ProductSortKey;
 import com.ecommerce.shoppingcart.service.CartService;
 import com.ecommerce.shoppingcart.service.ProductService;
 import com.ecommerce.shoppingcart.service.ReviewService;
 import com.ecommerce.shoppingcart.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -25,12 +32,15 @@ public class ProductController {
     private final CartService cartService;
     private final UserService userService;
     private final ReviewService reviewService;
+    private final GuestCartCookie guestCartCookie;
     
-    public ProductController(ProductService productService, CartService cartService, UserService userService, ReviewService reviewService) {
+    public ProductController(ProductService productService, CartService cartService, UserService userService,
+                             ReviewService reviewService, GuestCartCookie guestCartCookie) {
         this.productService = productService;
         this.cartService = cartService;
         this.userService = userService;
         this.reviewService = reviewService;
+        this.guestCartCookie = guestCartCookie;
     }
     
     @GetMapping("/products")
@@ -41,58 +51,103 @@ public class ProductController {
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(defaultValue = "name") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) PriceBucket price,
             Model model,
-            Authentication authentication) {
+            Authentication authentication,
+            HttpServletRequest request) {
+        
+        // Unknown sort keys are rejected before any query is built
+        if (!ProductSortKey.isSupported(sortBy)) {
+            return "redirect:/products?error=invalid_sort";
+        }
+        ProductSortKey sortKey = ProductSortKey.fromParameter(sortBy);
+        boolean descending = sortDir.equalsIgnoreCase("desc");
         
-        // Create pageable object
-        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-                   Sort.by(sortBy).descending() : 
-                   Sort.by(sortBy).ascending();
+        model.addAttribute("categories", Product.Category.values());
+        model.addAttribute("size", size);
+        model.addAttribute("sortBy", sortBy);
+        model.addAttribute("sortDir", sortDir);
+        
+        boolean searching = search != null && !search.trim().isEmpty();
+        FacetFilter facetFilter = FacetFilter.activeOnly(category, inStock, price);
+        if (!searching) {
+            model.addAttribute("facets", productService.getFacets(facetFilter));
+            model.addAttribute("priceBuckets", PriceBucket.values());
+            model.addAttribute("selectedInStock", inStock);
+            model.addAttribute("selectedPrice", price);
+        }
+        
+        if (!searching && !facetFilter.hasAttributeFilter()) {
+            // Keyset pagination over the pre-sorted catalog views
+            CursorPage<Product> slice;
+            try {
+                slice = productService.getCatalogPage(category, false, sortKey, descending, cursor, size, true);
+            } catch (IllegalArgumentException e) {
+                return "redirect:/products?error=invalid_page";
+            }
+            
+            model.addAttribute("keysetMode", true);
+            model.addAttribute("products", slice.items());
+            model.addAttribute("nextCursor", slice.nextCursor());
+            model.addAttribute("previousCursor", slice.previousCursor());
+            model.addAttribute("totalElements", slice.totalElements());
+            model.addAttribute("selectedCategory", category);
+            model.addAttribute("currentPage", 0);
+            model.addAttribute("totalPages", 0);
+        } else {
+            addPagedProducts(facetFilter, searching ? search.trim() : null, page, size,
+                    sortKey.toSort(descending), model);
+        }
+        
+        // Add cart count for authenticated users and guests with a cart
+        if (authentication != null && authentication.isAuthenticated() && 
+            !authentication.getName().equals("anonymousUser")) {
+            model.addAttribute("cartCount", cartService.getCartItemCount(authentication.getName()));
+        } else {
+            model.addAttribute("cartCount", cartService.getGuestCartItemCount(guestCartCookie.resolve(request)));
+        }
+        
+        return "products";
+    }
+    
+    private void addPagedProducts(FacetFilter facetFilter, String search, int page, int size,
+                                  Sort sort, Model model) {
         Pageable pageable = PageRequest.of(page, size, sort);
         
         Page<Product> productPage;
         
-        if (search != null && !search.trim().isEmpty()) {
-            productPage = productService.searchProducts(search.trim(), pageable);
+        if (search != null) {
+            productPage = productService.searchProducts(search, pageable);
             model.addAttribute("searchKeyword", search);
-        } else if (category != null) {
-            productPage = productService.getProductsByCategory(category, pageable);
-            model.addAttribute("selectedCategory", category);
+        } else if (facetFilter.hasAttributeFilter()) {
+            productPage = productService.getFacetedProducts(facetFilter, pageable);
+            model.addAttribute("selectedCategory", facetFilter.category());
+        } else if (facetFilter.category() != null) {
+            productPage = productService.getProductsByCategory(facetFilter.category(), pageable);
+            model.addAttribute("selectedCategory", facetFilter.category());
         } else {
             productPage = productService.getAllActiveProducts(pageable);
         }
         
+        model.addAttribute("keysetMode", false);
         model.addAttribute("productPage", productPage);
         model.addAttribute("products", productPage.getContent());
-        model.addAttribute("categories", Product.Category.values());
         model.addAttribute("currentPage", page);
         model.addAttribute("totalPages", productPage.getTotalPages());
         model.addAttribute("totalElements", productPage.getTotalElements());
-        model.addAttribute("size", size);
-        model.addAttribute("sortBy", sortBy);
-        model.addAttribute("sortDir", sortDir);
         
         // Calculate page numbers for pagination
         int startPage = Math.max(0, page - 2);
         int endPage = Math.min(productPage.getTotalPages() - 1, page + 2);
         model.addAttribute("startPage", startPage);
         model.addAttribute("endPage", endPage);
-        
-        // Add cart count for authenticated users
-        if (authentication != null && authentication.isAuthenticated() && 
-            !authentication.getName().equals("anonymousUser")) {
-            Optional<User> userOpt = userService.findByUsername(authentication.getName());
-            if (userOpt.isPresent()) {
-                int cartCount = cartService.getCartItemCount(userOpt.get());
-                model.addAttribute("cartCount", cartCount);
-            }
-        }
-        
-        return "products";
     }
     
     @GetMapping("/products/{id}")
-    public String productDetail(@PathVariable Long id, Model model, Authentication authentication) {
+    public String productDetail(@PathVariable Long id, Model model, Authentication authentication,
+                                HttpServletRequest request) {
         Optional<Product> productOpt = productService.getProductById(id);
         if (productOpt.isEmpty()) {
             return "redirect:/products";
@@ -117,6 +172,8 @@ public class ProductController {
                 model.addAttribute("hasReviewed", reviewService.hasUserReviewedProduct(product, user));
                 model.addAttribute("userReview", reviewService.getUserReviewForProduct(product, user).orElse(null));
             }
+        } else {
+            model.addAttribute("cartCount", cartService.getGuestCartItemCount(guestCartCookie.resolve(request)));
         }
         
         return "product-detail";
@@ -127,12 +184,21 @@ public class ProductController {
             @RequestParam Long productId,
             @RequestParam(defaultValue = "1") Integer quantity,
             Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response,
             RedirectAttributes redirectAttributes) {
         
+        // Guests get an in-memory cart; errors travel as a query parameter because a
+        // flash attribute would create a session
         if (authentication == null || !authentication.isAuthenticated() || 
             authentication.getName().equals("anonymousUser")) {
-            redirectAttributes.addFlashAttribute("error", "Please log in to add items to cart");
-            return "redirect:/login";
+            try {
+                cartService.addToGuestCart(guestCartCookie.resolveOrIssue(request, response), productId, quantity);
+                return "redirect:/cart";
+            } catch (IllegalArgumentException e) {
+                redirectAttributes.addAttribute("error", e.getMessage());
+                return "redirect:/products";
+            }
         }
         
         Optional<User> userOpt = userService.findByUsername(authentication.getName());
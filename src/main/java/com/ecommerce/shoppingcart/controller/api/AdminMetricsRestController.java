@@ -0,0 +1,63 @@
+package com.ecommerce.shoppingcart.controller.api;
+
+import com.ecommerce.shoppingcart.service.CartStore;
+import com.ecommerce.shoppingcart.service.CartSweeper;
+import com.ecommerce.shoppingcart.service.CheckoutQueue;
+import com.ecommerce.shoppingcart.service.GuestCartStore;
+import com.ecommerce.shoppingcart.service.HotStockCounters;
+import com.ecommerce.shoppingcart.service.OrderEventBus;
+import com.ecommerce.shoppingcart.service.OutboxRelay;
+import com.ecommerce.shoppingcart.service.ProductCache;
+import com.ecommerce.shoppingcart.service.StockReservationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/metrics")
+public class AdminMetricsRestController {
+    
+    private final ProductCache productCache;
+    private final CartStore cartStore;
+    private final GuestCartStore guestCartStore;
+    private final CartSweeper cartSweeper;
+    private final StockReservationService stockReservationService;
+    private final HotStockCounters hotStockCounters;
+    private final CheckoutQueue checkoutQueue;
+    private final OrderEventBus orderEventBus;
+    private final OutboxRelay outboxRelay;
+    
+    public AdminMetricsRestController(ProductCache productCache, CartStore cartStore, GuestCartStore guestCartStore,
+                                      CartSweeper cartSweeper, StockReservationService stockReservationService,
+                                      HotStockCounters hotStockCounters, CheckoutQueue checkoutQueue,
+                                      OrderEventBus orderEventBus, OutboxRelay outboxRelay) {
+        this.productCache = productCache;
+        this.cartStore = cartStore;
+        this.guestCartStore = guestCartStore;
+        this.cartSweeper = cartSweeper;
+        this.stockReservationService = stockReservationService;
+        this.hotStockCounters = hotStockCounters;
+        this.checkoutQueue = checkoutQueue;
+        this.orderEventBus = orderEventBus;
+        this.outboxRelay = outboxRelay;
+    }
+    
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("productCache", productCache.getStats());
+        metrics.put("cartStore", cartStore.getStats());
+        metrics.put("guestCarts", guestCartStore.getStats());
+        metrics.put("cartSweeper", cartSweeper.getStats());
+        metrics.put("stockReservations", stockReservationService.getStats());
+        metrics.put("hotStock", hotStockCounters.getStats());
+        metrics.put("checkoutQueue", checkoutQueue.getStats());
+        metrics.put("orderEvents", orderEventBus.getStats());
+        metrics.put("outbox", outboxRelay.getStats());
+        return ResponseEntity.ok(metrics);
+    }
+}
\ No newline at end of file
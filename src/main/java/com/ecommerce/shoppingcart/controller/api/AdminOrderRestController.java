@@ -0,0 +1,53 @@
+package com.ecommerce.shoppingcart.controller.api;
+
+import com.ecommerce.shoppingcart.dto.OrderSearchFilter;
+import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.Payment;
+import com.ecommerce.shoppingcart.service.OrderService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * JSON order search for the admin console. Every criterion is optional; results come
+ * newest first as summary rows, and nextCursor / previousCursor page through them.
+ */
+@RestController
+@RequestMapping("/admin/orders/search")
+public class AdminOrderRestController {
+    
+    private final OrderService orderService;
+    
+    public AdminOrderRestController(OrderService orderService) {
+        this.orderService = orderService;
+    }
+    
+    @GetMapping
+    public ResponseEntity<?> searchOrders(
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime placedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime placedTo,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) Payment.PaymentStatus paymentStatus,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        OrderSearchFilter filter = new OrderSearchFilter(status, placedFrom, placedTo,
+                username != null && !username.isBlank() ? username.trim() : null,
+                minAmount, maxAmount, paymentStatus);
+        try {
+            return ResponseEntity.ok(orderService.searchOrders(filter, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.ecommerce.shoppingcart.controller.api;
+
+import com.ecommerce.shoppingcart.dto.CartBatchRequest;
+import com.ecommerce.shoppingcart.dto.CartSnapshot;
+import com.ecommerce.shoppingcart.model.User;
+import com.ecommerce.shoppingcart.service.CartService;
+import com.ecommerce.shoppingcart.service.UserService;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JSON cart API for the signed-in user. A batch applies several add, update and
+ * remove operations at once and answers with the new cart, so a page can change
+ * many quantities in one round trip. Requests need the CSRF token in the
+ * X-CSRF-TOKEN header.
+ */
+@RestController
+@RequestMapping("/api/cart")
+public class CartRestController {
+    
+    private final CartService cartService;
+    private final UserService userService;
+    
+    public CartRestController(CartService cartService, UserService userService) {
+        this.cartService = cartService;
+        this.userService = userService;
+    }
+    
+    @GetMapping
+    public ResponseEntity<CartSnapshot> getCart(Authentication authentication) {
+        Optional<User> userOpt = userService.findByUsername(authentication.getName());
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(cartService.getCartSnapshot(userOpt.get()));
+    }
+    
+    /**
+     * Apply the operations atomically. Answers 409 with the current cart when the
+     * request's version is stale, 400 without changing the cart when any operation
+     * is invalid, and 503 when the cart store cannot take the change right now.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(@RequestBody CartBatchRequest request, Authentication authentication) {
+        Optional<User> userOpt = userService.findByUsername(authentication.getName());
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        User user = userOpt.get();
+        try {
+            return ResponseEntity.ok(cartService.applyBatch(user, request));
+        } catch (OptimisticLockingFailureException e) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("error", e.getMessage());
+            body.put("cart", cartService.getCartSnapshot(user));
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            // the cart store is at its hard limit until the pending carts are written back
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.ecommerce.shoppingcart.controller.api;
+
+import com.ecommerce.shoppingcart.service.HotStockCounters;
+import com.ecommerce.shoppingcart.service.ProductService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Hot stock mode for flash-sale products. PUT moves a product's stock holds to
+ * sharded in-memory counters, DELETE drains them back to the products row.
+ */
+@RestController
+@RequestMapping("/admin/products/hot")
+public class HotStockRestController {
+    
+    private final ProductService productService;
+    private final HotStockCounters hotStockCounters;
+    
+    public HotStockRestController(ProductService productService, HotStockCounters hotStockCounters) {
+        this.productService = productService;
+        this.hotStockCounters = hotStockCounters;
+    }
+    
+    @GetMapping
+    public ResponseEntity<HotStockCounters.Stats> getHotProducts() {
+        return ResponseEntity.ok(hotStockCounters.getStats());
+    }
+    
+    @PutMapping("/{productId}")
+    public ResponseEntity<?> enable(@PathVariable Long productId) {
+        try {
+            productService.setHotStock(productId, true);
+            return ResponseEntity.ok(hotStockCounters.getStats());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Answers 409 if holds in flight did not finish within the drain timeout; the
+     * product then stays hot
+     */
+    @DeleteMapping("/{productId}")
+    public ResponseEntity<?> disable(@PathVariable Long productId) {
+        try {
+            productService.setHotStock(productId, false);
+            return ResponseEntity.ok(hotStockCounters.getStats());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.ecommerce.shoppingcart.controller.api;
+
+import com.ecommerce.shoppingcart.dto.CatalogExportFilter;
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.service.ProductExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/products")
+@CrossOrigin(origins = "*")
+public class ProductExportController {
+    
+    private static final String NDJSON = "application/x-ndjson";
+    
+    private final ProductExportService productExportService;
+    
+    public ProductExportController(ProductExportService productExportService) {
+        this.productExportService = productExportService;
+    }
+    
+    /**
+     * Stream the catalog as newline-delimited JSON for feed builders. Inactive
+     * products are only exported to admins.
+     */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public void exportProducts(
+            @RequestParam(required = false) Product.Category category,
+            @RequestParam(defaultValue = "true") Boolean active,
+            @RequestParam(defaultValue = "false") boolean includeInactive,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
+        
+        Boolean activeFilter = includeInactive ? null : active;
+        if (!Boolean.TRUE.equals(activeFilter) && !isAdmin(authentication)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.ndjson\"");
+        productExportService.exportCatalog(new CatalogExportFilter(category, activeFilter, updatedSince),
+                response.getOutputStream());
+    }
+    
+    private boolean isAdmin(Authentication authentication) {
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.ecommerce.shoppingcart.controller.api;
+
+import com.ecommerce.shoppingcart.service.ProductImportJob;
+import com.ecommerce.shoppingcart.service.ProductImportService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Bulk product import. Uploading a CSV or NDJSON file starts a background job;
+ * its progress and row errors are polled from the returned job id.
+ *
+ * CSV files need a header row. Recognised columns (and NDJSON fields) are id, name,
+ * description, price, stockQuantity, category, imageUrl and active; rows with an
+ * id update that product, rows without one create a new product.
+ */
+@RestController
+@RequestMapping("/admin/products/import")
+public class ProductImportRestController {
+    
+    private final ProductImportService productImportService;
+    
+    public ProductImportRestController(ProductImportService productImportService) {
+        this.productImportService = productImportService;
+    }
+    
+    @PostMapping
+    public ResponseEntity<?> startImport(@RequestParam("file") MultipartFile file,
+                                         @RequestParam(required = false) String format) throws IOException {
+        try {
+            ProductImportJob job = productImportService.startImport(file, format);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ProductImportJob> getImport(@PathVariable String jobId) {
+        return productImportService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
\ No newline at end of file
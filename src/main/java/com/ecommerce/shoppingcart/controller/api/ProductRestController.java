@@ -1,62 +1,181 @@
 package com.ecommerce.shoppingcart.controller.api;
 
+import com.ecommerce.shoppingcart.dto.CursorPage;
+import com.ecommerce.shoppingcart.dto.FacetFilter;
+import com.ecommerce.shoppingcart.dto.PriceBucket;
+import com.ecommerce.shoppingcart.dto.ProductFacets;
+import com.ecommerce.shoppingcart.dto.ProductSnapshot;
+import com.ecommerce.shoppingcart.dto.ProductSuggestion;
 import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.repository.ProductSortKey;
+import com.ecommerce.shoppingcart.service.CatalogVersion;
 import com.ecommerce.shoppingcart.service.ProductService;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
+/**
+ * Read-only catalog API. Every response carries the catalog version as a strong ETag
+ * plus a Last-Modified date; a conditional request for an unchanged catalog is
+ * answered with 304 before any query runs.
+ */
 @RestController
 @RequestMapping("/api/products")
 @CrossOrigin(origins = "*")
 public class ProductRestController {
     
+    // Clients may store responses but must revalidate them before reuse
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+    
+    // Categories are an enum, so their tag only changes when the constants do. It is
+    // hashed from their names: an enum constant's own hash differs between JVMs.
+    private static final String CATEGORIES_ETAG =
+            "\"categories-" + Integer.toHexString(Arrays.toString(Product.Category.values()).hashCode()) + "\"";
+    
     private final ProductService productService;
+    private final CatalogVersion catalogVersion;
     
-    public ProductRestController(ProductService productService) {
+    public ProductRestController(ProductService productService, CatalogVersion catalogVersion) {
         this.productService = productService;
+        this.catalogVersion = catalogVersion;
     }
     
     @GetMapping
     public ResponseEntity<List<Product>> getAllProducts(
             @RequestParam(required = false) Product.Category category,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) PriceBucket price,
+            WebRequest request) {
         
-        List<Product> products;
+        FacetFilter facets = FacetFilter.activeOnly(category, inStock, price);
+        return conditional(request, () -> {
+            if (search != null && !search.trim().isEmpty()) {
+                return productService.searchProducts(search.trim());
+            } else if (facets.hasAttributeFilter()) {
+                return productService.getFacetedProducts(facets, Pageable.unpaged(ProductSortKey.NAME.toSort(false))).getContent();
+            } else if (category != null) {
+                return productService.getProductsByCategory(category);
+            } else {
+                return productService.getAllActiveProducts();
+            }
+        });
+    }
+    
+    /**
+     * Keyset-paginated listing, selected by the limit parameter. Pass the returned
+     * nextCursor/previousCursor back as cursor to move between pages.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<CursorPage<ProductSnapshot>> getProductPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Product.Category category,
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            WebRequest request) {
         
-        if (search != null && !search.trim().isEmpty()) {
-            products = productService.searchProducts(search.trim());
-        } else if (category != null) {
-            products = productService.getProductsByCategory(category);
-        } else {
-            products = productService.getAllActiveProducts();
+        try {
+            return conditional(request, () -> {
+                CursorPage<Product> page = productService.getCatalogPage(category, false,
+                        ProductSortKey.fromParameter(sortBy), sortDir.equalsIgnoreCase("desc"),
+                        cursor, limit, withTotal);
+                return new CursorPage<>(
+                        page.items().stream().map(ProductSnapshot::from).toList(),
+                        page.nextCursor(), page.previousCursor(), page.totalElements());
+            });
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-        
-        return ResponseEntity.ok(products);
+    }
+    
+    /**
+     * Result count and per-value counts for the category, price and stock facets
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacets> getFacets(
+            @RequestParam(required = false) Product.Category category,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) PriceBucket price,
+            WebRequest request) {
+        return conditional(request, () -> productService.getFacets(FacetFilter.activeOnly(category, inStock, price)));
+    }
+    
+    /**
+     * Search-box autocomplete served from memory; never touches the database
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestion>> suggest(@RequestParam String prefix,
+                                                           @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(productService.suggestProducts(prefix, limit));
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
+        String etag = catalogVersion.getETag();
+        long lastModified = catalogVersion.getLastModified();
+        if (request.checkNotModified(etag, lastModified)) {
+            return notModified(etag, lastModified);
+        }
+        
         Optional<Product> product = productService.getProductById(id);
-        return product.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        return product.map(p -> ok(etag, lastModified, p)).orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/categories")
-    public ResponseEntity<Product.Category[]> getCategories() {
-        return ResponseEntity.ok(Product.Category.values());
+    public ResponseEntity<Product.Category[]> getCategories(WebRequest request) {
+        if (request.checkNotModified(CATEGORIES_ETAG)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(CATEGORIES_ETAG)
+                    .cacheControl(REVALIDATE).build();
+        }
+        return ResponseEntity.ok().eTag(CATEGORIES_ETAG).cacheControl(REVALIDATE)
+                .body(Product.Category.values());
     }
     
+    /**
+     * Keyword search. Without the fuzzy parameter, typo-tolerant matching is only used
+     * when the exact search finds too few products.
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String keyword) {
-        List<Product> products = productService.searchProducts(keyword);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam String keyword,
+                                                        @RequestParam(required = false) Boolean fuzzy,
+                                                        WebRequest request) {
+        return conditional(request, () -> fuzzy == null ? productService.searchProducts(keyword)
+                : productService.searchProducts(keyword, fuzzy));
     }
     
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable Product.Category category) {
-        List<Product> products = productService.getProductsByCategory(category);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable Product.Category category,
+                                                               WebRequest request) {
+        return conditional(request, () -> productService.getProductsByCategory(category));
+    }
+    
+    // The tag is read before the body is built, so a write racing with the query can
+    // only make the tag older than the data and never hide a change from the client
+    private <T> ResponseEntity<T> conditional(WebRequest request, Supplier<T> body) {
+        String etag = catalogVersion.getETag();
+        long lastModified = catalogVersion.getLastModified();
+        if (request.checkNotModified(etag, lastModified)) {
+            return notModified(etag, lastModified);
+        }
+        return ok(etag, lastModified, body.get());
+    }
+    
+    private static <T> ResponseEntity<T> ok(String etag, long lastModified, T body) {
+        return ResponseEntity.ok().eTag(etag).lastModified(lastModified).cacheControl(REVALIDATE).body(body);
+    }
+    
+    private static <T> ResponseEntity<T> notModified(String etag, long lastModified) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).lastModified(lastModified)
+                .cacheControl(REVALIDATE).build();
     }
 }
\ No newline at end of file
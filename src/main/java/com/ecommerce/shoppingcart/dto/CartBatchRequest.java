@@ -0,0 +1,10 @@
+package com.ecommerce.shoppingcart.dto;
+
+import java.util.List;
+
+/**
+ * Cart operations to apply together. When version is set the batch is only applied
+ * if the cart is still at that version, as returned in the last {@link CartSnapshot}.
+ */
+public record CartBatchRequest(Long version, List<CartOperation> operations) {
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.Locale;
+
+/**
+ * One change in a batch cart update. ADD adds to the quantity in the cart, UPDATE
+ * sets it for a product already in the cart (zero or less removes the product) and
+ * REMOVE takes the product out. An UPDATE of a product not in the cart does nothing,
+ * as on the single-item endpoint.
+ */
+public record CartOperation(Action action, Long productId, Integer quantity) {
+    
+    public enum Action {
+        ADD, UPDATE, REMOVE;
+        
+        @JsonCreator
+        public static Action fromValue(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+}
\ No newline at end of file
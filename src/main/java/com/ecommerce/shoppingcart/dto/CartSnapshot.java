@@ -0,0 +1,40 @@
+package com.ecommerce.shoppingcart.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Read model of a cart: every line with the product fields a cart, checkout or order
+ * needs, plus totals computed once when the snapshot is built. Build it once per
+ * request and pass it along instead of reading the cart again.
+ *
+ * version changes with every change to the cart and is the token for optimistic
+ * concurrency in batch updates.
+ */
+public record CartSnapshot(List<Line> items, BigDecimal total, int itemCount, long version) {
+    
+    public static CartSnapshot of(List<Line> items, long version) {
+        BigDecimal total = BigDecimal.ZERO;
+        int itemCount = 0;
+        for (Line line : items) {
+            total = total.add(line.getSubtotal());
+            itemCount += line.quantity();
+        }
+        return new CartSnapshot(List.copyOf(items), total, itemCount, version);
+    }
+    
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+    
+    public record Line(ProductSnapshot product, int quantity) {
+        
+        public BigDecimal getSubtotal() {
+            return product.price() != null ? product.price().multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO;
+        }
+        
+        public boolean isAvailable() {
+            return product.active() && product.availableQuantity() >= quantity;
+        }
+    }
+}
\ No newline at end of file
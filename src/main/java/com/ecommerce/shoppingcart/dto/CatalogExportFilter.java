@@ -0,0 +1,11 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.ecommerce.shoppingcart.model.Product;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters for the catalog export. A null field does not filter.
+ */
+public record CatalogExportFilter(Product.Category category, Boolean active, LocalDateTime updatedSince) {
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.ecommerce.shoppingcart.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. totalElements is null when the caller
+ * asked for a slice without a total count.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor, String previousCursor, Long totalElements) {
+    
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+    
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+}
\ No newline at end of file
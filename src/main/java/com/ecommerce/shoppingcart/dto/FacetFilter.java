@@ -0,0 +1,35 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.ecommerce.shoppingcart.model.Product;
+
+/**
+ * Combination of facet selections. A null field leaves that facet unfiltered.
+ */
+public record FacetFilter(
+        Product.Category category,
+        Boolean inStock,
+        PriceBucket priceBucket,
+        boolean includeInactive) {
+    
+    public static FacetFilter activeOnly(Product.Category category, Boolean inStock, PriceBucket priceBucket) {
+        return new FacetFilter(category, inStock, priceBucket, false);
+    }
+    
+    /**
+     * True when the filter narrows the catalog beyond what a category listing does
+     */
+    public boolean hasAttributeFilter() {
+        return inStock != null || priceBucket != null;
+    }
+    
+    /**
+     * Whether the product passes every selection, judged the way the facet index
+     * files it
+     */
+    public boolean matches(ProductSnapshot product) {
+        return (includeInactive || product.active())
+                && (category == null || category == product.category())
+                && (inStock == null || inStock == product.availableQuantity() > 0)
+                && (priceBucket == null || priceBucket == PriceBucket.of(product.price()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.ecommerce.shoppingcart.model.Order;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a customer's order history, newest first: the date and id of the order
+ * at the edge of a page, plus the direction to read in from there.
+ *
+ * Clients only ever see the opaque token produced by {@link #encode()}.
+ */
+public record OrderCursor(LocalDateTime orderDate, Long id, boolean backward) {
+    
+    private static final String SEPARATOR = "|";
+    
+    public static OrderCursor after(Order order) {
+        return new OrderCursor(order.getOrderDate(), order.getId(), false);
+    }
+    
+    public static OrderCursor before(Order order) {
+        return new OrderCursor(order.getOrderDate(), order.getId(), true);
+    }
+    
+    public String encode() {
+        String raw = (backward ? "B" : "F") + SEPARATOR + id + SEPARATOR + orderDate;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 3);
+            return new OrderCursor(LocalDateTime.parse(parts[2]), Long.valueOf(parts[1]), "B".equals(parts[0]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+}
\ No newline at end of file
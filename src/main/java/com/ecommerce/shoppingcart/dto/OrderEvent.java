@@ -0,0 +1,39 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.ecommerce.shoppingcart.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Something that happened to an order or its payment. Events are recorded in the
+ * outbox by the transaction that makes the change, and order events are also
+ * published on the order event bus once it commits. They carry ids and values only,
+ * never entities, since they are read outside any session.
+ */
+public sealed interface OrderEvent {
+    
+    Long orderId();
+    
+    /**
+     * @param quantities units ordered per product id
+     */
+    record OrderPlaced(Long orderId, Long userId, BigDecimal totalAmount, Map<Long, Integer> quantities,
+                       LocalDateTime placedAt) implements OrderEvent {
+    }
+    
+    record PaymentCompleted(Long orderId, Long paymentId, BigDecimal amount,
+                            String transactionId) implements OrderEvent {
+    }
+    
+    record PaymentFailed(Long orderId, Long paymentId, BigDecimal amount, String reason) implements OrderEvent {
+    }
+    
+    record PaymentRefunded(Long orderId, Long paymentId, BigDecimal amount) implements OrderEvent {
+    }
+    
+    record OrderStatusChanged(Long orderId, Order.OrderStatus previousStatus,
+                              Order.OrderStatus status) implements OrderEvent {
+    }
+}
\ No newline at end of file
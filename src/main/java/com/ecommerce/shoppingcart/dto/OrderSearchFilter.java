@@ -0,0 +1,20 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.Payment;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Criteria for the admin order search. A null field does not filter; date and amount
+ * ranges include both bounds.
+ */
+public record OrderSearchFilter(Order.OrderStatus status,
+                                LocalDateTime placedFrom,
+                                LocalDateTime placedTo,
+                                String username,
+                                BigDecimal minAmount,
+                                BigDecimal maxAmount,
+                                Payment.PaymentStatus paymentStatus) {
+}
\ No newline at end of file
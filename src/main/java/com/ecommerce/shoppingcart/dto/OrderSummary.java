@@ -0,0 +1,19 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.Payment;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of the admin order search, read as a projection so no order, user or
+ * payment entity is loaded. The payment status is null for an unpaid order.
+ */
+public record OrderSummary(Long id,
+                           LocalDateTime orderDate,
+                           Order.OrderStatus status,
+                           BigDecimal totalAmount,
+                           String username,
+                           Payment.PaymentStatus paymentStatus) {
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.ecommerce.shoppingcart.model.OutboxEvent;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * An outbox event as handed to a sink. The id is unique and stable across redeliveries,
+ * so consumers drop events they have already seen by id.
+ */
+public record OutboxMessage(Long id,
+                            OutboxEvent.AggregateType aggregateType,
+                            Long aggregateId,
+                            String eventType,
+                            @JsonRawValue String payload,
+                            LocalDateTime createdAt) {
+    
+    public static OutboxMessage of(OutboxEvent event) {
+        return new OutboxMessage(event.getId(), event.getAggregateType(), event.getAggregateId(),
+                event.getEventType(), event.getPayload(), event.getCreatedAt());
+    }
+}
\ No newline at end of file
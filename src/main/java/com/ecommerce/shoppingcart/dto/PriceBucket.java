@@ -0,0 +1,53 @@
+package com.ecommerce.shoppingcart.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed price ranges used for faceted filtering. Lower bounds are inclusive,
+ * upper bounds exclusive.
+ */
+public enum PriceBucket {
+    UNDER_25("Under $25", null, new BigDecimal("25")),
+    FROM_25_TO_50("$25 - $50", new BigDecimal("25"), new BigDecimal("50")),
+    FROM_50_TO_100("$50 - $100", new BigDecimal("50"), new BigDecimal("100")),
+    FROM_100_TO_250("$100 - $250", new BigDecimal("100"), new BigDecimal("250")),
+    FROM_250_TO_500("$250 - $500", new BigDecimal("250"), new BigDecimal("500")),
+    OVER_500("$500 and above", new BigDecimal("500"), null);
+    
+    private final String label;
+    private final BigDecimal min;
+    private final BigDecimal max;
+    
+    PriceBucket(String label, BigDecimal min, BigDecimal max) {
+        this.label = label;
+        this.min = min;
+        this.max = max;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    public BigDecimal getMin() {
+        return min;
+    }
+    
+    public BigDecimal getMax() {
+        return max;
+    }
+    
+    /**
+     * Bucket containing the given price, or null for a product without a price
+     */
+    public static PriceBucket of(BigDecimal price) {
+        if (price == null) {
+            return null;
+        }
+        for (PriceBucket bucket : values()) {
+            if (bucket.max == null || price.compareTo(bucket.max) < 0) {
+                return bucket;
+            }
+        }
+        return OVER_500;
+    }
+}
\ No newline at end of file
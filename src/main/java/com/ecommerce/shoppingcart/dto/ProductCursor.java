@@ -0,0 +1,54 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.ecommerce.shoppingcart.repository.ProductSortKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated product listing: the sort key value and id of the
+ * row at the edge of a page, plus the direction to read in from there.
+ *
+ * Clients only ever see the opaque token produced by {@link #encode()}.
+ */
+public record ProductCursor(ProductSortKey sortKey, boolean descending, String keyValue, Long id, boolean backward) {
+    
+    private static final String SEPARATOR = "|";
+    
+    public static ProductCursor after(ProductSnapshot product, ProductSortKey sortKey, boolean descending) {
+        return new ProductCursor(sortKey, descending, sortKey.cursorValue(product), product.id(), false);
+    }
+    
+    public static ProductCursor before(ProductSnapshot product, ProductSortKey sortKey, boolean descending) {
+        return new ProductCursor(sortKey, descending, sortKey.cursorValue(product), product.id(), true);
+    }
+    
+    public String encode() {
+        String raw = sortKey.name() + SEPARATOR + (descending ? "D" : "A") + SEPARATOR
+                + (backward ? "B" : "F") + SEPARATOR + id + SEPARATOR + keyValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // the key value goes last because product names may contain the separator
+            String[] parts = raw.split("\\" + SEPARATOR, 5);
+            ProductSortKey sortKey = ProductSortKey.valueOf(parts[0]);
+            ProductCursor cursor = new ProductCursor(sortKey, "D".equals(parts[1]), parts[4],
+                    Long.valueOf(parts[3]), "B".equals(parts[2]));
+            cursor.typedKeyValue();
+            return cursor;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+    
+    /**
+     * The key value converted to the sort value it was written from
+     */
+    @SuppressWarnings("rawtypes")
+    public Comparable typedKeyValue() {
+        return sortKey.parseValue(keyValue);
+    }
+}
\ No newline at end of file
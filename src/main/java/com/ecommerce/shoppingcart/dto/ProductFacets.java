@@ -0,0 +1,19 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.ecommerce.shoppingcart.model.Product;
+
+import java.util.Map;
+
+/**
+ * Result size and per-facet counts for a {@link FacetFilter}.
+ *
+ * Each facet is counted with every other selection applied but its own, so the
+ * counts show how many products a click on that value would return.
+ */
+public record ProductFacets(
+        long total,
+        Map<Product.Category, Long> categories,
+        Map<PriceBucket, Long> priceBuckets,
+        long inStock,
+        long outOfStock) {
+}
\ No newline at end of file
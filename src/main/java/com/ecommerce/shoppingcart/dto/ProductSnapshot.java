@@ -0,0 +1,75 @@
+package com.ecommerce.shoppingcart.dto;
+
+import com.ecommerce.shoppingcart.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable, detached copy of a product's scalar state. Safe to cache and share
+ * between threads because it holds no reference to the persistence context or
+ * to the lazy cartItems/orderItems/reviews collections.
+ */
+public record ProductSnapshot(
+        Long id,
+        String name,
+        String description,
+        BigDecimal price,
+        Integer stockQuantity,
+        int reservedQuantity,
+        String imageUrl,
+        Product.Category category,
+        boolean active,
+        LocalDateTime updatedAt,
+        LocalDateTime createdAt) {
+    
+    public static ProductSnapshot from(Product product) {
+        return new ProductSnapshot(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getStockQuantity(),
+                product.getReservedQuantity(),
+                product.getImageUrl(),
+                product.getCategory(),
+                product.isActive(),
+                product.getUpdatedAt(),
+                product.getCreatedAt());
+    }
+    
+    /**
+     * Build a new detached Product from this snapshot. Every call returns a fresh
+     * instance so callers may modify it without affecting the cached copy.
+     */
+    public Product toProduct() {
+        Product product = new Product(name, description, price, stockQuantity, category);
+        product.setId(id);
+        product.setReservedQuantity(reservedQuantity);
+        product.setImageUrl(imageUrl);
+        product.setActive(active);
+        product.setUpdatedAt(updatedAt);
+        product.setCreatedAt(createdAt);
+        return product;
+    }
+    
+    /**
+     * Copy of this snapshot with stock on hand and held units moved by the given deltas
+     */
+    public ProductSnapshot withStockChange(int stockDelta, int reservedDelta) {
+        return new ProductSnapshot(id, name, description, price,
+                stockQuantity != null ? stockQuantity + stockDelta : null, reservedQuantity + reservedDelta,
+                imageUrl, category, active, updatedAt, createdAt);
+    }
+    
+    /**
+     * Units that can still be sold: stock on hand minus what unpaid orders hold
+     */
+    public int availableQuantity() {
+        return stockQuantity != null ? Math.max(stockQuantity - reservedQuantity, 0) : 0;
+    }
+    
+    public boolean isInStock() {
+        return availableQuantity() > 0;
+    }
+}
\ No newline at end of file
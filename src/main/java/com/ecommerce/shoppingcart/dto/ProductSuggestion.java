@@ -0,0 +1,7 @@
+package com.ecommerce.shoppingcart.dto;
+
+/**
+ * Autocomplete entry for the product search box
+ */
+public record ProductSuggestion(Long id, String name) {
+}
\ No newline at end of file
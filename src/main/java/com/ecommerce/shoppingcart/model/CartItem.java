@@ -5,13 +5,19 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", indexes = {
+    @Index(name = "idx_cart_items_user_product", columnList = "user_id, product_id"),
+    @Index(name = "idx_cart_items_updated_at", columnList = "updated_at, id")
+})
 public class CartItem {
     
+    // Pooled sequence so the write-behind flush can batch its inserts, like products
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_item_seq")
+    @SequenceGenerator(name = "cart_item_seq", sequenceName = "cart_items_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -26,6 +32,11 @@ public class CartItem {
     @Min(value = 1, message = "Quantity must be at least 1")
     private Integer quantity;
     
+    // Last change to any item of the same cart; the whole cart is touched on every
+    // write so that stale rows always belong to an abandoned cart
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
     // Constructors
     public CartItem() {}
     
@@ -68,6 +79,20 @@ public class CartItem {
         this.quantity = quantity;
     }
     
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    @PrePersist
+    @PreUpdate
+    protected void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+    
     // Calculated field
     public BigDecimal getSubtotal() {
         if (product != null && product.getPrice() != null && quantity != null) {
@@ -7,11 +7,17 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_user_date", columnList = "user_id, order_date, id"),
+    @Index(name = "idx_orders_status_date", columnList = "status, order_date, id"),
+    @Index(name = "idx_orders_date", columnList = "order_date, id")
+})
 public class Order {
     
+    // Pooled sequences for orders and their items let checkout batch its inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
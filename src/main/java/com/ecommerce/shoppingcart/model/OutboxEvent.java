@@ -0,0 +1,135 @@
+package com.ecommerce.shoppingcart.model;
+
+import jakarta.persistence.*;
+import org.hibernate.Length;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+
+/**
+ * An order or payment change waiting to be handed to downstream consumers. The row is
+ * written in the same transaction as the change itself and marked delivered by the
+ * outbox relay; delivered rows are purged after a retention period. An event the sink
+ * keeps rejecting is set aside as failed and stays in the table until it is dealt with.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+    @Index(name = "idx_outbox_events_delivered", columnList = "delivered_at, id")
+})
+public class OutboxEvent {
+    
+    // Pooled, so a transaction that records several events batches their inserts
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "aggregate_type", nullable = false, length = 20)
+    private AggregateType aggregateType;
+    
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+    
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;
+    
+    // JSON of the event
+    @Column(nullable = false, length = Length.LONG32)
+    private String payload;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "delivered_at")
+    private LocalDateTime deliveredAt;
+    
+    // Deliveries of this event alone that failed. Changed only by OutboxEventRepository.
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private int attempts;
+    
+    // Set once attempts reaches the relay's max-attempts; the relay no longer claims it
+    @Column(name = "failed_at", updatable = false)
+    private LocalDateTime failedAt;
+    
+    // Constructors
+    public OutboxEvent() {}
+    
+    public OutboxEvent(AggregateType aggregateType, Long aggregateId, String eventType, String payload) {
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public AggregateType getAggregateType() {
+        return aggregateType;
+    }
+    
+    public void setAggregateType(AggregateType aggregateType) {
+        this.aggregateType = aggregateType;
+    }
+    
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+    
+    public void setAggregateId(Long aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+    
+    public String getEventType() {
+        return eventType;
+    }
+    
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+    
+    public String getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getDeliveredAt() {
+        return deliveredAt;
+    }
+    
+    public void setDeliveredAt(LocalDateTime deliveredAt) {
+        this.deliveredAt = deliveredAt;
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public LocalDateTime getFailedAt() {
+        return failedAt;
+    }
+    
+    public enum AggregateType {
+        ORDER, PAYMENT
+    }
+}
\ No newline at end of file
@@ -4,16 +4,28 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    @Index(name = "idx_products_active_name", columnList = "active, name, id"),
+    @Index(name = "idx_products_active_price", columnList = "active, price, id"),
+    @Index(name = "idx_products_category_name", columnList = "category, active, name, id"),
+    @Index(name = "idx_products_category_price", columnList = "category, active, price, id"),
+    @Index(name = "idx_products_updated_at", columnList = "updated_at, id"),
+    @Index(name = "idx_products_hot_stock", columnList = "hot_stock")
+})
 public class Product {
     
+    // A pooled sequence hands out ids in blocks of 50 without a round trip per insert,
+    // which lets Hibernate batch inserts; IDENTITY columns disable insert batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Product name is required")
@@ -31,6 +43,18 @@ public class Product {
     @Column(name = "stock_quantity")
     private Integer stockQuantity = 0;
     
+    // Units held by unpaid orders. Changed only by the conditional stock updates in
+    // ProductRepository, never by saving the entity, so edits cannot lose a hold.
+    @ColumnDefault("0")
+    @Column(name = "reserved_quantity", nullable = false, updatable = false)
+    private int reservedQuantity;
+    
+    // Set while HotStockCounters serves the product's holds and cleared once they are
+    // written back, so a set flag at startup marks a row that may have missed a flush
+    @ColumnDefault("false")
+    @Column(name = "hot_stock", nullable = false, updatable = false)
+    private boolean hotStock;
+    
     private String imageUrl;
     
     @Enumerated(EnumType.STRING)
@@ -38,6 +62,13 @@ public class Product {
     
     private boolean active = true;
     
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Set once on insert; stock updates move updated_at but never this
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+    
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<CartItem> cartItems;
     
@@ -99,6 +130,25 @@ public class Product {
         this.stockQuantity = stockQuantity;
     }
     
+    public int getReservedQuantity() {
+        return reservedQuantity;
+    }
+    
+    public void setReservedQuantity(int reservedQuantity) {
+        this.reservedQuantity = reservedQuantity;
+    }
+    
+    public boolean isHotStock() {
+        return hotStock;
+    }
+    
+    /**
+     * Units that can still be sold: stock on hand minus what unpaid orders hold
+     */
+    public int getAvailableQuantity() {
+        return stockQuantity != null ? Math.max(stockQuantity - reservedQuantity, 0) : 0;
+    }
+    
     public String getImageUrl() {
         return imageUrl;
     }
@@ -123,6 +173,33 @@ public class Product {
         this.active = active;
     }
     
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+    
+    @PreUpdate
+    protected void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+    
     public List<CartItem> getCartItems() {
         return cartItems;
     }
@@ -0,0 +1,103 @@
+package com.ecommerce.shoppingcart.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Units of one product held for an unpaid order. A hold is placed at checkout and
+ * either committed when the order is paid or released when payment fails or the hold
+ * expires. The same units are counted in the product's reserved quantity while the
+ * hold is active.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+    @Index(name = "idx_stock_reservations_order", columnList = "order_id"),
+    @Index(name = "idx_stock_reservations_expiry", columnList = "status, expires_at"),
+    @Index(name = "idx_stock_reservations_product", columnList = "product_id, status")
+})
+public class StockReservation {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservation_seq")
+    @SequenceGenerator(name = "stock_reservation_seq", sequenceName = "stock_reservations_seq", allocationSize = 50)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    private Order order;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+    
+    private Integer quantity;
+    
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.HELD;
+    
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+    
+    // Constructors
+    public StockReservation() {}
+    
+    public StockReservation(Order order, Product product, Integer quantity, LocalDateTime expiresAt) {
+        this.order = order;
+        this.product = product;
+        this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Order getOrder() {
+        return order;
+    }
+    
+    public void setOrder(Order order) {
+        this.order = order;
+    }
+    
+    public Product getProduct() {
+        return product;
+    }
+    
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+    
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+    
+    public enum Status {
+        HELD, COMMITTED, RELEASED
+    }
+}
\ No newline at end of file
@@ -3,9 +3,15 @@ package com.ecommerce.shoppingcart.repository;
 import com.ecommerce.shoppingcart.model.CartItem;
 import com.ecommerce.shoppingcart.model.User;
 import com.ecommerce.shoppingcart.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,4 +25,32 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     void deleteByUser(User user);
     
     void deleteByUserAndProduct(User user, Product product);
+    
+    /**
+     * A user's cart as [productId, quantity] rows in the order the items were added
+     */
+    @Query("SELECT c.product.id, c.quantity FROM CartItem c WHERE c.user.id = :userId ORDER BY c.id")
+    List<Object[]> findQuantitiesByUserId(@Param("userId") Long userId);
+    
+    List<CartItem> findByUserIdAndProductIdIn(Long userId, Collection<Long> productIds);
+    
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.user.id = :userId AND c.product.id IN :productIds")
+    int deleteByUserIdAndProductIds(@Param("userId") Long userId, @Param("productIds") Collection<Long> productIds);
+    
+    @Modifying
+    @Query("UPDATE CartItem c SET c.updatedAt = :now WHERE c.user.id = :userId")
+    int touchByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+    
+    /**
+     * Oldest rows last changed before the cutoff, as [id, userId] rows; walks the
+     * updated_at index so each call reads at most limit rows
+     */
+    @Query("SELECT c.id, c.user.id FROM CartItem c WHERE c.updatedAt < :cutoff ORDER BY c.updatedAt, c.id")
+    List<Object[]> findStaleIds(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+    
+    // The cutoff is checked again so a row touched since it was selected survives
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.id IN :ids AND c.updatedAt < :cutoff")
+    int deleteStale(@Param("ids") Collection<Long> ids, @Param("cutoff") LocalDateTime cutoff);
 }
\ No newline at end of file
@@ -3,23 +3,27 @@ package com.ecommerce.shoppingcart.repository;
 import com.ecommerce.shoppingcart.model.Order;
 import com.ecommerce.shoppingcart.model.Product;
 import com.ecommerce.shoppingcart.model.User;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
-    
-    List<Order> findByUserOrderByOrderDateDesc(User user);
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
     
     List<Order> findByStatus(Order.OrderStatus status);
     
-    Page<Order> findByStatus(Order.OrderStatus status, Pageable pageable);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
     
     @Query("SELECT CASE WHEN COUNT(o) > 0 THEN true ELSE false END FROM Order o " +
            "JOIN o.orderItems oi " +
@@ -27,4 +31,34 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     boolean existsByUserAndOrderItemsProductAndStatus(@Param("user") User user, 
                                                      @Param("product") Product product, 
                                                      @Param("status") Order.OrderStatus status);
+    
+    // Keyset pages of a user's order ids, newest first, read from the (user_id, order_date, id) index
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id DESC")
+    List<Long> findNewestIds(@Param("userId") Long userId, Limit limit);
+    
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId " +
+           "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Long> findIdsOlderThan(@Param("userId") Long userId, @Param("orderDate") LocalDateTime orderDate,
+                                @Param("id") Long id, Limit limit);
+    
+    // Ascending, so the orders just above the cursor come first
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId " +
+           "AND (o.orderDate > :orderDate OR (o.orderDate = :orderDate AND o.id > :id)) " +
+           "ORDER BY o.orderDate ASC, o.id ASC")
+    List<Long> findIdsNewerThan(@Param("userId") Long userId, @Param("orderDate") LocalDateTime orderDate,
+                                @Param("id") Long id, Limit limit);
+    
+    /**
+     * Orders with their items, the items' products and the payment, all in one query
+     */
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.product " +
+           "LEFT JOIN FETCH o.payment WHERE o.id IN :ids")
+    List<Order> findWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Units sold per product over all orders, as [productId, quantity] rows
+     */
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi GROUP BY oi.product.id")
+    List<Object[]> sumQuantityByProduct();
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.ecommerce.shoppingcart.repository;
+
+import com.ecommerce.shoppingcart.dto.OrderCursor;
+import com.ecommerce.shoppingcart.dto.OrderSearchFilter;
+import com.ecommerce.shoppingcart.dto.OrderSummary;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+    
+    /**
+     * Up to limit orders matching the filter, newest first, starting past the cursor.
+     * A backward cursor reads the orders just newer than it in ascending order. Only
+     * the criteria that are set go into the query, so each combination can use the
+     * index that leads with its equality column and continues with order_date, id.
+     */
+    List<OrderSummary> searchOrders(OrderSearchFilter filter, OrderCursor cursor, int limit);
+}
\ No newline at end of file
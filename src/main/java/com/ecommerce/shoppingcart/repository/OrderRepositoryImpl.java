@@ -0,0 +1,75 @@
+package com.ecommerce.shoppingcart.repository;
+
+import com.ecommerce.shoppingcart.dto.OrderCursor;
+import com.ecommerce.shoppingcart.dto.OrderSearchFilter;
+import com.ecommerce.shoppingcart.dto.OrderSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<OrderSummary> searchOrders(OrderSearchFilter filter, OrderCursor cursor, int limit) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (filter.status() != null) {
+            conditions.add("o.status = :status");
+            parameters.put("status", filter.status());
+        }
+        if (filter.username() != null) {
+            conditions.add("u.username = :username");
+            parameters.put("username", filter.username());
+        }
+        if (filter.placedFrom() != null) {
+            conditions.add("o.orderDate >= :placedFrom");
+            parameters.put("placedFrom", filter.placedFrom());
+        }
+        if (filter.placedTo() != null) {
+            conditions.add("o.orderDate <= :placedTo");
+            parameters.put("placedTo", filter.placedTo());
+        }
+        if (filter.minAmount() != null) {
+            conditions.add("o.totalAmount >= :minAmount");
+            parameters.put("minAmount", filter.minAmount());
+        }
+        if (filter.maxAmount() != null) {
+            conditions.add("o.totalAmount <= :maxAmount");
+            parameters.put("maxAmount", filter.maxAmount());
+        }
+        if (filter.paymentStatus() != null) {
+            conditions.add("p.paymentStatus = :paymentStatus");
+            parameters.put("paymentStatus", filter.paymentStatus());
+        }
+        boolean backward = cursor != null && cursor.backward();
+        if (cursor != null) {
+            String after = backward ? ">" : "<";
+            conditions.add("(o.orderDate " + after + " :cursorDate " +
+                    "OR (o.orderDate = :cursorDate AND o.id " + after + " :cursorId))");
+            parameters.put("cursorDate", cursor.orderDate());
+            parameters.put("cursorId", cursor.id());
+        }
+        
+        // inner join on payments once it is filtered, so the planner may start from its index
+        StringBuilder hql = new StringBuilder("SELECT new com.ecommerce.shoppingcart.dto.OrderSummary(" +
+                "o.id, o.orderDate, o.status, o.totalAmount, u.username, p.paymentStatus) " +
+                "FROM Order o JOIN o.user u ")
+                .append(filter.paymentStatus() != null ? "JOIN" : "LEFT JOIN").append(" o.payment p");
+        if (!conditions.isEmpty()) {
+            hql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        hql.append(backward ? " ORDER BY o.orderDate ASC, o.id ASC" : " ORDER BY o.orderDate DESC, o.id DESC");
+        
+        TypedQuery<OrderSummary> query = entityManager.createQuery(hql.toString(), OrderSummary.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.ecommerce.shoppingcart.repository;
+
+import com.ecommerce.shoppingcart.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    /**
+     * Ids of the oldest undelivered events above the given id, without locking, leaving
+     * out failed ones. The order by delivered_at, which is null for all of them, lets
+     * the database read them in (delivered_at, id) index order instead of sorting every
+     * pending row.
+     */
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.deliveredAt IS NULL AND e.failedAt IS NULL " +
+           "AND e.id > :afterId ORDER BY e.deliveredAt, e.id")
+    List<Long> findUndeliveredIds(@Param("afterId") Long afterId, Limit limit);
+    
+    /**
+     * Lock those of the given events that are still undelivered, skipping rows another
+     * relay has locked, so concurrent relays claim disjoint batches. A lock timeout of
+     * -2 is Hibernate's SKIP LOCKED. Locking by primary key keeps the locks to the
+     * batch even on databases that lock every row a FOR UPDATE scan visits.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.id IN :ids AND e.deliveredAt IS NULL AND e.failedAt IS NULL " +
+           "ORDER BY e.id")
+    List<OutboxEvent> claimUndelivered(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Count a failed delivery of an undelivered event; the attempt that reaches
+     * maxAttempts sets the event aside as failed
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, " +
+           "e.failedAt = CASE WHEN e.attempts + 1 >= :maxAttempts THEN :now ELSE NULL END " +
+           "WHERE e.id = :id AND e.deliveredAt IS NULL AND e.failedAt IS NULL")
+    int recordFailedAttempt(@Param("id") Long id, @Param("maxAttempts") int maxAttempts,
+                            @Param("now") LocalDateTime now);
+    
+    long countByFailedAtIsNotNull();
+    
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.deliveredAt = :now WHERE e.id IN :ids")
+    int markDelivered(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    // Oldest delivered events first, read through the (delivered_at, id) index
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.deliveredAt < :cutoff ORDER BY e.deliveredAt, e.id")
+    List<Long> findDeliveredBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+    
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
\ No newline at end of file
@@ -1,17 +1,23 @@
 package com.ecommerce.shoppingcart.repository;
 
 import com.ecommerce.shoppingcart.model.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     
     List<Product> findByActiveTrue();
     
@@ -25,15 +31,51 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     Page<Product> findByActiveTrueAndCategory(Product.Category category, Pageable pageable);
     
-    @Query("SELECT p FROM Product p WHERE p.active = true AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')))")
-    List<Product> searchByKeyword(@Param("keyword") String keyword);
+    List<Product> findByStockQuantityGreaterThan(Integer quantity);
     
-    @Query("SELECT p FROM Product p WHERE p.active = true AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')))")
-    Page<Product> searchByKeyword(@Param("keyword") String keyword, Pageable pageable);
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
     
-    List<Product> findByStockQuantityGreaterThan(Integer quantity);
+    // Turn held units into a sale: they leave the stock and the hold together
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, " +
+           "p.reservedQuantity = p.reservedQuantity - :quantity, p.updatedAt = :now WHERE p.id = :id")
+    int commitReservedStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Product p SET p.reservedQuantity = p.reservedQuantity - :quantity, p.updatedAt = :now " +
+           "WHERE p.id = :id")
+    int releaseReservedStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+    
+    // Write back the stock changes collected in memory for a hot product
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :stockDelta, " +
+           "p.reservedQuantity = p.reservedQuantity + :reservedDelta, p.updatedAt = :now WHERE p.id = :id")
+    int applyStockChanges(@Param("id") Long id, @Param("stockDelta") int stockDelta,
+                          @Param("reservedDelta") int reservedDelta, @Param("now") LocalDateTime now);
+    
+    /**
+     * Set reserved_quantity to the units of the product's HELD reservations wherever the
+     * two disagree, for products still flagged hot; returns the number of products
+     * corrected. Only hot products can miss a write, so other rows are not visited.
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.reservedQuantity = (SELECT COALESCE(SUM(r.quantity), 0) FROM StockReservation r " +
+           "WHERE r.product = p AND r.status = com.ecommerce.shoppingcart.model.StockReservation.Status.HELD), " +
+           "p.updatedAt = :now WHERE p.hotStock = true AND p.reservedQuantity <> (SELECT COALESCE(SUM(r.quantity), 0) " +
+           "FROM StockReservation r " +
+           "WHERE r.product = p AND r.status = com.ecommerce.shoppingcart.model.StockReservation.Status.HELD)")
+    int reconcileReservedQuantities(@Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Product p SET p.hotStock = :hot WHERE p.id = :id")
+    int setHotStock(@Param("id") Long id, @Param("hot") boolean hot);
+    
+    // Drop the hot flag left behind by products that were hot when the JVM stopped
+    @Modifying
+    @Query("UPDATE Product p SET p.hotStock = false WHERE p.hotStock = true")
+    int clearHotStock();
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.ecommerce.shoppingcart.repository;
+
+import com.ecommerce.shoppingcart.dto.CatalogExportFilter;
+import com.ecommerce.shoppingcart.model.Product;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface ProductRepositoryCustom {
+    
+    /**
+     * Read every product matching the filter in id order through a forward-only cursor
+     * and hand each one to the consumer. Rows are read by a stateless session, so
+     * nothing accumulates in a persistence context however large the catalog is.
+     */
+    void scrollCatalog(CatalogExportFilter filter, Consumer<Product> consumer);
+    
+    /**
+     * Hold quantities of active products with one conditional UPDATE each, sent as a
+     * single JDBC batch on the transaction's connection. Returns the update count per
+     * product, 0 where fewer units were available; such a product is left unchanged.
+     */
+    int[] reserveStockBatch(List<Long> ids, List<Integer> quantities, LocalDateTime now);
+}
\ No newline at end of file
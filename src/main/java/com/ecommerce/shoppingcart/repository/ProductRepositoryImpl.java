@@ -0,0 +1,93 @@
+package com.ecommerce.shoppingcart.repository;
+
+import com.ecommerce.shoppingcart.dto.CatalogExportFilter;
+import com.ecommerce.shoppingcart.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.SelectionQuery;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+    
+    private static final String RESERVE_STOCK_SQL =
+            "UPDATE products SET reserved_quantity = reserved_quantity + ?, updated_at = ? " +
+            "WHERE id = ? AND active = true AND stock_quantity - reserved_quantity >= ?";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // Rows per round trip. The mysql profile sets Integer.MIN_VALUE, which makes Connector/J
+    // stream rows instead of buffering the result set; other drivers reject it.
+    @Value("${app.catalog.export.fetch-size:500}")
+    private int exportFetchSize;
+    
+    @Override
+    public void scrollCatalog(CatalogExportFilter filter, Consumer<Product> consumer) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.category() != null) {
+            conditions.add("p.category = :category");
+        }
+        if (filter.active() != null) {
+            conditions.add("p.active = :active");
+        }
+        if (filter.updatedSince() != null) {
+            conditions.add("p.updatedAt >= :updatedSince");
+        }
+        
+        StringBuilder hql = new StringBuilder("SELECT p FROM Product p");
+        if (!conditions.isEmpty()) {
+            hql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        hql.append(" ORDER BY p.id");
+        
+        SessionFactory sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            SelectionQuery<Product> query = session.createSelectionQuery(hql.toString(), Product.class);
+            if (filter.category() != null) {
+                query.setParameter("category", filter.category());
+            }
+            if (filter.active() != null) {
+                query.setParameter("active", filter.active());
+            }
+            if (filter.updatedSince() != null) {
+                query.setParameter("updatedSince", filter.updatedSince());
+            }
+            query.setFetchSize(exportFetchSize);
+            query.setReadOnly(true);
+            
+            try (ScrollableResults<Product> rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    consumer.accept(rows.get());
+                }
+            }
+        }
+    }
+    
+    @Override
+    public int[] reserveStockBatch(List<Long> ids, List<Integer> quantities, LocalDateTime now) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(RESERVE_STOCK_SQL)) {
+                for (int i = 0; i < ids.size(); i++) {
+                    statement.setInt(1, quantities.get(i));
+                    statement.setTimestamp(2, Timestamp.valueOf(now));
+                    statement.setLong(3, ids.get(i));
+                    statement.setInt(4, quantities.get(i));
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+    }
+}
\ No newline at end of file
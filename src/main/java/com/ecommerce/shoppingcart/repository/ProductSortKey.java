@@ -0,0 +1,134 @@
+package com.ecommerce.shoppingcart.repository;
+
+import com.ecommerce.shoppingcart.dto.ProductSnapshot;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Whitelist of the sort orders the catalog can be listed in. Request parameters are
+ * resolved through {@link #fromParameter(String)}, so only these properties ever
+ * reach a query. Every key is paired with the product id as a tie-breaker so the
+ * ordering is total.
+ */
+public enum ProductSortKey {
+    NAME("name", "name"),
+    PRICE("price", "price"),
+    STOCK("stock", "stockQuantity"),
+    NEWEST("newest", "createdAt");
+    
+    private static final Map<String, ProductSortKey> BY_PARAMETER = new HashMap<>();
+    
+    static {
+        for (ProductSortKey key : values()) {
+            BY_PARAMETER.put(key.parameter, key);
+        }
+    }
+    
+    private final String parameter;
+    private final String property;
+    
+    ProductSortKey(String parameter, String property) {
+        this.parameter = parameter;
+        this.property = property;
+    }
+    
+    public String getParameter() {
+        return parameter;
+    }
+    
+    public String getProperty() {
+        return property;
+    }
+    
+    public static boolean isSupported(String parameter) {
+        return parameter != null && BY_PARAMETER.containsKey(parameter.toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * Resolve a request parameter such as "name" or "newest"
+     */
+    public static ProductSortKey fromParameter(String parameter) {
+        ProductSortKey key = parameter != null ? BY_PARAMETER.get(parameter.toLowerCase(Locale.ROOT)) : null;
+        if (key == null) {
+            throw new IllegalArgumentException("Unsupported sort key: " + parameter);
+        }
+        return key;
+    }
+    
+    /**
+     * The key of a sort built by {@link #toSort(boolean)}, or null for an unsorted one
+     *
+     * @throws IllegalArgumentException if the sort is on a property no key covers
+     */
+    public static ProductSortKey fromSort(Sort sort) {
+        if (sort.isUnsorted()) {
+            return null;
+        }
+        String property = sort.iterator().next().getProperty();
+        for (ProductSortKey key : values()) {
+            if (key.property.equals(property)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort property: " + property);
+    }
+    
+    public Sort toSort(boolean descending) {
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(direction, property, "id");
+    }
+    
+    /**
+     * Ascending order of this key over product snapshots, ids breaking ties. Names
+     * compare case-insensitively to match the database collation.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Comparator<ProductSnapshot> comparator() {
+        Comparator<Comparable> values = Comparator.nullsFirst(Comparator.naturalOrder());
+        Comparator<ProductSnapshot> byValue = (a, b) -> values.compare(sortValue(a), sortValue(b));
+        return byValue.thenComparing(ProductSnapshot::id);
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Comparable sortValue(ProductSnapshot product) {
+        return switch (this) {
+            case NAME -> product.name() != null ? product.name().toLowerCase(Locale.ROOT) : null;
+            case PRICE -> product.price();
+            case STOCK -> product.stockQuantity();
+            case NEWEST -> product.createdAt();
+        };
+    }
+    
+    /**
+     * The sort value of a product as written into a page cursor
+     */
+    public String cursorValue(ProductSnapshot product) {
+        Object value = sortValue(product);
+        if (value == null) {
+            return "";
+        }
+        return value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+    }
+    
+    /**
+     * Parse a value written by {@link #cursorValue(ProductSnapshot)} back into a sort value
+     */
+    @SuppressWarnings("rawtypes")
+    public Comparable parseValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        return switch (this) {
+            case NAME -> value.toLowerCase(Locale.ROOT);
+            case PRICE -> new BigDecimal(value);
+            case STOCK -> Integer.valueOf(value);
+            case NEWEST -> LocalDateTime.parse(value);
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.ecommerce.shoppingcart.repository;
+
+import com.ecommerce.shoppingcart.model.StockReservation;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+    
+    /**
+     * Reservations of an order as [id, productId, quantity, status] rows
+     */
+    @Query("SELECT r.id, r.product.id, r.quantity, r.status FROM StockReservation r WHERE r.order.id = :orderId")
+    List<Object[]> findByOrderId(@Param("orderId") Long orderId);
+    
+    /**
+     * Units of a product its HELD reservations add up to
+     */
+    @Query("SELECT COALESCE(SUM(r.quantity), 0) FROM StockReservation r WHERE r.product.id = :productId " +
+           "AND r.status = com.ecommerce.shoppingcart.model.StockReservation.Status.HELD")
+    int sumHeldQuantity(@Param("productId") Long productId);
+    
+    /**
+     * Oldest expired holds as [id, productId, quantity] rows, read through the
+     * (status, expires_at) index so only expired rows are visited
+     */
+    @Query("SELECT r.id, r.product.id, r.quantity FROM StockReservation r " +
+           "WHERE r.status = com.ecommerce.shoppingcart.model.StockReservation.Status.HELD " +
+           "AND r.expiresAt < :now ORDER BY r.expiresAt")
+    List<Object[]> findExpired(@Param("now") LocalDateTime now, Limit limit);
+    
+    /**
+     * Move a reservation from one status to another; returns 0 if it was not in the
+     * expected status, so of two racing transitions only one takes effect
+     */
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.id = :id AND r.status = :from")
+    int transition(@Param("id") Long id,
+                   @Param("from") StockReservation.Status from,
+                   @Param("to") StockReservation.Status to);
+    
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.expiresAt = :expiresAt WHERE r.order.id = :orderId " +
+           "AND r.status = com.ecommerce.shoppingcart.model.StockReservation.Status.HELD")
+    int extendHolds(@Param("orderId") Long orderId, @Param("expiresAt") LocalDateTime expiresAt);
+}
\ No newline at end of file
@@ -1,97 +1,272 @@
 package com.ecommerce.shoppingcart.service;
 
+import com.ecommerce.shoppingcart.dto.CartBatchRequest;
+import com.ecommerce.shoppingcart.dto.CartOperation;
+import com.ecommerce.shoppingcart.dto.CartSnapshot;
+import com.ecommerce.shoppingcart.dto.ProductSnapshot;
 import com.ecommerce.shoppingcart.model.CartItem;
-import com.ecommerce.shoppingcart.model.Product;
 import com.ecommerce.shoppingcart.model.User;
 import com.ecommerce.shoppingcart.repository.CartItemRepository;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+/**
+ * Cart operations. Cart contents live in the {@link CartStore} and are written back
+ * to cart_items in the background; products are read through the product cache, so
+ * viewing or changing a cart normally does not touch the database.
+ */
 @Service
 public class CartService {
     
+    private static final int MAX_BATCH_OPERATIONS = 100;
+    
+    private final CartStore cartStore;
+    private final GuestCartStore guestCartStore;
     private final CartItemRepository cartItemRepository;
     private final ProductService productService;
+    private final UserService userService;
     
-    public CartService(CartItemRepository cartItemRepository, ProductService productService) {
+    public CartService(CartStore cartStore, GuestCartStore guestCartStore, CartItemRepository cartItemRepository,
+                       ProductService productService, UserService userService) {
+        this.cartStore = cartStore;
+        this.guestCartStore = guestCartStore;
         this.cartItemRepository = cartItemRepository;
         this.productService = productService;
+        this.userService = userService;
     }
     
-    public List<CartItem> getCartItems(User user) {
-        return cartItemRepository.findByUser(user);
+    /**
+     * The user's cart with current product details and totals, read from the cart
+     * store and the product cache; products missing from the cache are loaded in a
+     * single query. Lines are in the order the products were first added.
+     */
+    public CartSnapshot getCartSnapshot(User user) {
+        return toSnapshot(cartStore.getContents(user.getId()));
     }
     
-    @Transactional
-    public CartItem addToCart(User user, Long productId, Integer quantity) {
-        Optional<Product> productOpt = productService.getProductById(productId);
-        if (productOpt.isEmpty()) {
-            throw new IllegalArgumentException("Product not found");
+    /**
+     * Apply a batch of cart operations atomically and return the resulting cart.
+     * Every operation is validated before any is applied, so an invalid one rejects
+     * the whole batch. Stock is checked per product against the quantity the cart
+     * would end up with, counting what it already holds and every operation on that
+     * product. The changes reach cart_items in a single write-behind flush.
+     *
+     * @throws IllegalArgumentException if an operation is invalid
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the request
+     *         carries a version and the cart has changed since
+     */
+    public CartSnapshot applyBatch(User user, CartBatchRequest request) {
+        List<CartOperation> operations = request.operations() != null ? request.operations() : List.of();
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_OPERATIONS + " operations per batch");
         }
         
-        Product product = productOpt.get();
-        if (!product.isActive() || product.getStockQuantity() < quantity) {
-            throw new IllegalArgumentException("Product not available or insufficient stock");
+        Set<Long> productIds = new HashSet<>();
+        for (CartOperation operation : operations) {
+            if (operation.action() == null || operation.productId() == null) {
+                throw new IllegalArgumentException("Every operation needs an action and a productId");
+            }
+            productIds.add(operation.productId());
+        }
+        for (CartOperation operation : operations) {
+            validate(operation);
         }
         
-        Optional<CartItem> existingItem = cartItemRepository.findByUserAndProduct(user, product);
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + quantity);
-            return cartItemRepository.save(item);
+        // the products are read before the cart is locked; the check itself does no I/O
+        Map<Long, ProductSnapshot> products = productService.getProductSnapshots(productIds);
+        return toSnapshot(cartStore.apply(user.getId(), request.version(), operations,
+                result -> result.forEach((productId, quantity) ->
+                        checkAvailable(productId, quantity, products.get(productId)))));
+    }
+    
+    /**
+     * Add to the quantity of a product in the user's cart. Like a batch ADD, the stock
+     * check is made against the quantity the cart ends up with, under the cart lock.
+     *
+     * @throws IllegalArgumentException if the product is unknown, inactive or short
+     */
+    public CartItem addToCart(User user, Long productId, Integer quantity) {
+        Optional<ProductSnapshot> product = productService.getProductSnapshot(productId);
+        if (product.isEmpty()) {
+            throw new IllegalArgumentException("Product not found");
+        }
+        
+        CartStore.Contents contents = cartStore.apply(user.getId(), null,
+                List.of(new CartOperation(CartOperation.Action.ADD, productId, quantity)),
+                result -> checkAvailable(productId, result.get(productId), product.get()));
+        return new CartItem(user, product.get().toProduct(), contents.quantities().getOrDefault(productId, 0));
+    }
+    
+    public void updateCartItem(User user, Long productId, Integer quantity) {
+        cartStore.update(user.getId(), productId, quantity);
+    }
+    
+    public void removeFromCart(User user, Long productId) {
+        cartStore.remove(user.getId(), productId);
+    }
+    
+    public void clearCart(User user) {
+        cartStore.clear(user.getId());
+    }
+    
+    /**
+     * Remove ordered items as part of a checkout. The rows are deleted in the caller's
+     * transaction; the in-memory cart only changes once that transaction commits.
+     *
+     * @param ordered quantity ordered per product id
+     */
+    public void removeOrderedItems(User user, Map<Long, Integer> ordered) {
+        cartItemRepository.deleteByUserIdAndProductIds(user.getId(), ordered.keySet());
+        Runnable removeFromStore = () -> cartStore.removeOrdered(user.getId(), ordered);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeFromStore.run();
+                }
+            });
         } else {
-            CartItem newItem = new CartItem(user, product, quantity);
-            return cartItemRepository.save(newItem);
+            removeFromStore.run();
+        }
+    }
+    
+    /**
+     * Units in the cart, for the header badge. Reads a maintained counter; no cart
+     * items or products are loaded.
+     */
+    public int getCartItemCount(User user) {
+        return cartStore.getItemCount(user.getId());
+    }
+    
+    /**
+     * Units in the cart of the user with this username, or 0 if there is no such user
+     */
+    public int getCartItemCount(String username) {
+        return userService.findIdByUsername(username)
+                .map(cartStore::getItemCount)
+                .orElse(0);
+    }
+    
+    /**
+     * The cart of a visitor who is not logged in. Guest carts have no version.
+     */
+    public CartSnapshot getGuestCartSnapshot(String guestToken) {
+        return toSnapshot(new CartStore.Contents(guestCartStore.getQuantities(guestToken), 0));
+    }
+    
+    public void addToGuestCart(String guestToken, Long productId, Integer quantity) {
+        Optional<ProductSnapshot> product = productService.getProductSnapshot(productId);
+        if (product.isEmpty()) {
+            throw new IllegalArgumentException("Product not found");
         }
+        int inCart = guestCartStore.getQuantities(guestToken).getOrDefault(productId, 0);
+        checkAvailable(productId, inCart + quantity, product.get());
+        guestCartStore.add(guestToken, productId, quantity);
+    }
+    
+    public void updateGuestCartItem(String guestToken, Long productId, Integer quantity) {
+        guestCartStore.update(guestToken, productId, quantity);
+    }
+    
+    public void removeFromGuestCart(String guestToken, Long productId) {
+        guestCartStore.remove(guestToken, productId);
+    }
+    
+    public void clearGuestCart(String guestToken) {
+        guestCartStore.clear(guestToken);
+    }
+    
+    public int getGuestCartItemCount(String guestToken) {
+        return guestCartStore.getItemCount(guestToken);
     }
     
-    @Transactional
-    public void updateCartItem(User user, Long cartItemId, Integer quantity) {
-        Optional<CartItem> itemOpt = cartItemRepository.findById(cartItemId);
-        if (itemOpt.isPresent()) {
-            CartItem item = itemOpt.get();
-            if (item.getUser().getId().equals(user.getId())) {
-                if (quantity <= 0) {
-                    cartItemRepository.delete(item);
-                } else {
-                    item.setQuantity(quantity);
-                    cartItemRepository.save(item);
+    /**
+     * Move a guest cart into the user's cart after login, as one batch of ADD operations.
+     * A line that would take the user's cart past the available stock is cut down to
+     * it; lines whose product is gone or inactive, or of which the user's cart already
+     * holds all that is left, are dropped. If the merge fails, the guest cart is put
+     * back so the next login can merge it.
+     *
+     * @return the number of products merged
+     */
+    public int mergeGuestCart(User user, String guestToken) {
+        Map<Long, Integer> guestQuantities = guestCartStore.take(guestToken);
+        if (guestQuantities.isEmpty()) {
+            return 0;
+        }
+        List<CartOperation> operations = new ArrayList<>(guestQuantities.size());
+        for (Map.Entry<Long, Integer> entry : guestQuantities.entrySet()) {
+            operations.add(new CartOperation(CartOperation.Action.ADD, entry.getKey(), entry.getValue()));
+        }
+        Set<Long> dropped = new HashSet<>();
+        try {
+            Map<Long, ProductSnapshot> products = productService.getProductSnapshots(guestQuantities.keySet());
+            cartStore.apply(user.getId(), null, operations, result -> {
+                for (Map.Entry<Long, Integer> line : result.entrySet()) {
+                    ProductSnapshot product = products.get(line.getKey());
+                    int inCart = line.getValue() - guestQuantities.get(line.getKey());
+                    // the product went away while it sat in the guest cart, or the user's
+                    // cart already holds what is left of it
+                    if (!isAvailable(product, inCart + 1)) {
+                        dropped.add(line.getKey());
+                    } else if (line.getValue() > product.availableQuantity()) {
+                        line.setValue(product.availableQuantity());
+                    }
                 }
-            }
+                result.keySet().removeAll(dropped);
+            });
+        } catch (RuntimeException e) {
+            guestCartStore.restore(guestToken, guestQuantities);
+            throw e;
         }
+        return guestQuantities.size() - dropped.size();
     }
     
-    @Transactional
-    public void removeFromCart(User user, Long cartItemId) {
-        Optional<CartItem> itemOpt = cartItemRepository.findById(cartItemId);
-        if (itemOpt.isPresent()) {
-            CartItem item = itemOpt.get();
-            if (item.getUser().getId().equals(user.getId())) {
-                cartItemRepository.delete(item);
-            }
+    private static void validate(CartOperation operation) {
+        if (operation.action() == CartOperation.Action.REMOVE) {
+            return;
+        }
+        Integer quantity = operation.quantity();
+        if (quantity == null || (operation.action() == CartOperation.Action.ADD && quantity <= 0)) {
+            throw new IllegalArgumentException("Invalid quantity for product " + operation.productId());
         }
     }
     
-    @Transactional
-    public void clearCart(User user) {
-        cartItemRepository.deleteByUser(user);
+    // A quantity of zero or less leaves the product out of the cart, which is always allowed
+    private static void checkAvailable(Long productId, int quantity, ProductSnapshot product) {
+        if (quantity <= 0) {
+            return;
+        }
+        if (product == null) {
+            throw new IllegalArgumentException("Product not found: " + productId);
+        }
+        if (!isAvailable(product, quantity)) {
+            throw new IllegalArgumentException("Product " + product.name() + " not available or insufficient stock");
+        }
     }
     
-    public BigDecimal getCartTotal(User user) {
-        List<CartItem> items = getCartItems(user);
-        return items.stream()
-                .map(CartItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private static boolean isAvailable(ProductSnapshot product, int quantity) {
+        return product != null && product.active() && product.availableQuantity() >= quantity;
     }
     
-    public int getCartItemCount(User user) {
-        List<CartItem> items = getCartItems(user);
-        return items.stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+    private CartSnapshot toSnapshot(CartStore.Contents contents) {
+        Map<Long, Integer> quantities = contents.quantities();
+        Map<Long, ProductSnapshot> products = productService.getProductSnapshots(quantities.keySet());
+        List<CartSnapshot.Line> lines = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            ProductSnapshot product = products.get(entry.getKey());
+            if (product != null) {
+                lines.add(new CartSnapshot.Line(product, entry.getValue()));
+            }
+        }
+        return CartSnapshot.of(lines, contents.version());
     }
 }
\ No newline at end of file
@@ -0,0 +1,455 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.CartOperation;
+import com.ecommerce.shoppingcart.model.CartItem;
+import com.ecommerce.shoppingcart.repository.CartItemRepository;
+import com.ecommerce.shoppingcart.repository.ProductRepository;
+import com.ecommerce.shoppingcart.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * In-memory cart contents per user, the primary read and write path for carts.
+ *
+ * A cart is loaded from cart_items on first use and then served from memory. Changes
+ * are recorded per product and written back by a scheduled flush, so any number of
+ * changes to one product between two flushes cost a single row write. Dirty carts are
+ * also flushed on shutdown; a crash loses at most the changes of the last flush interval.
+ *
+ * The store holds at most max-carts carts and evicts the least recently used clean
+ * cart when it is full. A cart with unflushed changes is never evicted, so the store
+ * can grow past its bound while flushes fall behind, up to hard-max-carts. At that
+ * limit a new cart first writes back the oldest dirty carts on the caller's thread,
+ * and is refused with IllegalStateException if that does not make room, for example
+ * while the database is down.
+ *
+ * The store is single-node only: each instance keeps its own carts and writes them
+ * back without coordination, so behind a load balancer every user must stick to one
+ * instance.
+ *
+ * Consistency at checkout: the in-memory cart is the source of truth for what is
+ * ordered. Checkout deletes the ordered rows inside its own transaction and calls
+ * {@link #removeOrdered} after commit, which takes only the ordered quantities out of
+ * the cart, so items added while the order was placed stay in it.
+ */
+@Component
+public class CartStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+    
+    // Cart versions come from one counter seeded with the start time, so a cart that is
+    // evicted and reloaded never hands out a version a client has already seen
+    private static final AtomicLong VERSIONS = new AtomicLong(System.currentTimeMillis());
+    
+    // dirty carts written back by a caller that finds the store at its hard limit
+    private static final int FLUSH_ON_FULL = 64;
+    
+    private final CartItemRepository cartItemRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxCarts;
+    private final int hardMaxCarts;
+    
+    // userId -> cart, in access order for LRU eviction
+    private final LinkedHashMap<Long, UserCart> carts = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong refusals = new AtomicLong();
+    
+    public CartStore(CartItemRepository cartItemRepository, UserRepository userRepository,
+                     ProductRepository productRepository, PlatformTransactionManager transactionManager,
+                     @Value("${app.cart.store.max-carts:10000}") int maxCarts,
+                     @Value("${app.cart.store.hard-max-carts:20000}") int hardMaxCarts) {
+        this.cartItemRepository = cartItemRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxCarts = maxCarts;
+        this.hardMaxCarts = Math.max(hardMaxCarts, maxCarts);
+    }
+    
+    /**
+     * Quantities per product id, in the order the products were first added, with the
+     * cart version they were read at
+     */
+    public Contents getContents(Long userId) {
+        return access(userId, cart -> new Contents(new LinkedHashMap<>(cart.quantities), cart.version));
+    }
+    
+    /**
+     * Total units in the cart, maintained on every change so reading it is O(1)
+     */
+    public int getItemCount(Long userId) {
+        return access(userId, cart -> cart.itemCount);
+    }
+    
+    public int getQuantity(Long userId, Long productId) {
+        return access(userId, cart -> cart.quantities.getOrDefault(productId, 0));
+    }
+    
+    /**
+     * Add to the quantity of a product, returning the new quantity
+     */
+    public int add(Long userId, Long productId, int quantity) {
+        return access(userId, cart -> cart.set(productId, cart.quantities.getOrDefault(productId, 0) + quantity));
+    }
+    
+    /**
+     * Set the quantity of a product already in the cart; zero or less removes it.
+     * Products that are not in the cart are ignored.
+     */
+    public void update(Long userId, Long productId, int quantity) {
+        access(userId, cart -> cart.quantities.containsKey(productId) ? cart.set(productId, quantity) : 0);
+    }
+    
+    public void remove(Long userId, Long productId) {
+        access(userId, cart -> cart.set(productId, 0));
+    }
+    
+    public void clear(Long userId) {
+        access(userId, cart -> {
+            for (Long productId : new ArrayList<>(cart.quantities.keySet())) {
+                cart.set(productId, 0);
+            }
+            return 0;
+        });
+    }
+    
+    /**
+     * Apply all operations or none of them. The resulting quantity of every product the
+     * operations touch is worked out against the current cart first and handed to the
+     * check, under the cart lock, so the check sees exactly what would be stored. The
+     * check rejects the batch by throwing, or leaves a product as it is by removing it
+     * from the map; it must not block, since the cart stays locked while it runs.
+     *
+     * @param expectedVersion version the caller last saw, or null to apply unconditionally
+     * @param check receives the resulting quantity per touched product, zero for removed ones
+     * @throws OptimisticLockingFailureException if the cart changed since expectedVersion
+     */
+    public Contents apply(Long userId, Long expectedVersion, List<CartOperation> operations,
+                          Consumer<Map<Long, Integer>> check) {
+        return access(userId, cart -> {
+            if (expectedVersion != null && expectedVersion != cart.version) {
+                throw new OptimisticLockingFailureException(
+                        "Cart is at version " + cart.version + ", not " + expectedVersion);
+            }
+            Map<Long, Integer> result = new LinkedHashMap<>();
+            for (CartOperation operation : operations) {
+                Long productId = operation.productId();
+                int current = result.containsKey(productId)
+                        ? result.get(productId) : cart.quantities.getOrDefault(productId, 0);
+                switch (operation.action()) {
+                    case ADD -> result.put(productId, current + operation.quantity());
+                    case UPDATE -> {
+                        // like update(), never adds a product that is not in the cart
+                        if (current > 0) {
+                            result.put(productId, Math.max(operation.quantity(), 0));
+                        }
+                    }
+                    case REMOVE -> result.put(productId, 0);
+                }
+            }
+            check.accept(result);
+            result.forEach(cart::set);
+            return new Contents(new LinkedHashMap<>(cart.quantities), cart.version);
+        });
+    }
+    
+    /**
+     * Take ordered quantities out of the cart after a checkout has committed. The
+     * ordered rows are already deleted, so whatever is left is written back again.
+     */
+    public void removeOrdered(Long userId, Map<Long, Integer> ordered) {
+        access(userId, cart -> {
+            for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+                int left = cart.quantities.getOrDefault(entry.getKey(), 0) - entry.getValue();
+                cart.set(entry.getKey(), left);
+            }
+            return 0;
+        });
+    }
+    
+    /**
+     * Called after the rows of these users' carts were purged as abandoned. A clean
+     * cart is dropped so its next use reloads the now empty cart; a cart that changed
+     * meanwhile is in use after all, so all of its items are written back.
+     */
+    public void onPurged(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            UserCart cart;
+            synchronized (carts) {
+                cart = carts.get(userId);
+            }
+            if (cart == null) {
+                continue;
+            }
+            cart.lock.lock();
+            try {
+                if (cart.dirty.isEmpty() && !cart.flushing) {
+                    synchronized (carts) {
+                        carts.remove(userId);
+                    }
+                    cart.evicted = true;
+                } else {
+                    cart.dirty.addAll(cart.quantities.keySet());
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Write the changes of every dirty cart to cart_items
+     */
+    @Scheduled(fixedDelayString = "${app.cart.store.flush-interval-ms:1000}")
+    public void flush() {
+        for (UserCart cart : snapshot()) {
+            flush(cart);
+        }
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+    
+    public Stats getStats() {
+        List<UserCart> all = snapshot();
+        int dirty = 0;
+        for (UserCart cart : all) {
+            cart.lock.lock();
+            try {
+                if (!cart.dirty.isEmpty()) {
+                    dirty++;
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+        return new Stats(all.size(), maxCarts, hardMaxCarts, dirty, loads.get(), flushedRows.get(),
+                flushFailures.get(), evictions.get(), refusals.get());
+    }
+    
+    // Runs the action under the cart's lock; retries if the cart was evicted while waiting for it
+    private <T> T access(Long userId, Function<UserCart, T> action) {
+        while (true) {
+            UserCart cart = cart(userId);
+            cart.lock.lock();
+            try {
+                if (cart.evicted) {
+                    continue;
+                }
+                if (!cart.loaded) {
+                    load(cart);
+                }
+                return action.apply(cart);
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+    
+    private List<UserCart> snapshot() {
+        synchronized (carts) {
+            return new ArrayList<>(carts.values());
+        }
+    }
+    
+    private UserCart cart(Long userId) {
+        UserCart cart = cachedOrAdded(userId);
+        if (cart == null) {
+            // the store is full of unflushed carts: writing the oldest back here slows new
+            // carts down to the pace the database keeps up with
+            flushEldest();
+            cart = cachedOrAdded(userId);
+            if (cart == null) {
+                refusals.incrementAndGet();
+                throw new IllegalStateException("Too many carts have unsaved changes; please try again shortly");
+            }
+        }
+        return cart;
+    }
+    
+    // Null when the cart is not cached and the store is at its hard limit
+    private UserCart cachedOrAdded(Long userId) {
+        synchronized (carts) {
+            UserCart cart = carts.get(userId);
+            if (cart != null) {
+                return cart;
+            }
+            evictIdle();
+            if (carts.size() >= hardMaxCarts) {
+                return null;
+            }
+            cart = new UserCart(userId);
+            carts.put(userId, cart);
+            return cart;
+        }
+    }
+    
+    private void flushEldest() {
+        List<UserCart> all = snapshot();
+        for (UserCart cart : all.subList(0, Math.min(FLUSH_ON_FULL, all.size()))) {
+            flush(cart);
+        }
+    }
+    
+    // Called with the map locked; makes room for one more cart, skipping carts that are dirty or in use
+    private void evictIdle() {
+        Iterator<UserCart> eldest = carts.values().iterator();
+        while (carts.size() >= maxCarts && eldest.hasNext()) {
+            UserCart cart = eldest.next();
+            if (!cart.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (cart.dirty.isEmpty() && !cart.flushing) {
+                    cart.evicted = true;
+                    eldest.remove();
+                    evictions.incrementAndGet();
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+    
+    private void load(UserCart cart) {
+        for (Object[] row : cartItemRepository.findQuantitiesByUserId(cart.userId)) {
+            cart.quantities.put((Long) row[0], (Integer) row[1]);
+            cart.itemCount += (Integer) row[1];
+        }
+        cart.version = VERSIONS.incrementAndGet();
+        cart.loaded = true;
+        loads.incrementAndGet();
+    }
+    
+    private void flush(UserCart cart) {
+        Map<Long, Integer> changes = new HashMap<>();
+        cart.lock.lock();
+        try {
+            if (cart.evicted || cart.flushing || cart.dirty.isEmpty()) {
+                return;
+            }
+            for (Long productId : cart.dirty) {
+                changes.put(productId, cart.quantities.getOrDefault(productId, 0));
+            }
+            cart.dirty.clear();
+            cart.flushing = true;
+        } finally {
+            cart.lock.unlock();
+        }
+        
+        boolean written = false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(cart.userId, changes));
+            flushedRows.addAndGet(changes.size());
+            written = true;
+        } catch (RuntimeException e) {
+            flushFailures.incrementAndGet();
+            log.warn("Could not flush the cart of user {}; retrying on the next flush", cart.userId, e);
+        } finally {
+            cart.lock.lock();
+            try {
+                if (!written) {
+                    // later changes to the same products are already marked dirty
+                    cart.dirty.addAll(changes.keySet());
+                }
+                cart.flushing = false;
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+    
+    private void write(Long userId, Map<Long, Integer> changes) {
+        Map<Long, CartItem> rows = new HashMap<>();
+        for (CartItem item : cartItemRepository.findByUserIdAndProductIdIn(userId, changes.keySet())) {
+            rows.put(item.getProduct().getId(), item);
+        }
+        List<CartItem> saved = new ArrayList<>();
+        List<CartItem> deleted = new ArrayList<>();
+        for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+            CartItem row = rows.get(change.getKey());
+            int quantity = change.getValue();
+            if (quantity <= 0) {
+                if (row != null) {
+                    deleted.add(row);
+                }
+            } else if (row != null) {
+                row.setQuantity(quantity);
+                saved.add(row);
+            } else {
+                saved.add(new CartItem(userRepository.getReferenceById(userId),
+                        productRepository.getReferenceById(change.getKey()), quantity));
+            }
+        }
+        cartItemRepository.saveAll(saved);
+        cartItemRepository.deleteAll(deleted);
+        cartItemRepository.touchByUserId(userId, LocalDateTime.now());
+    }
+    
+    private static final class UserCart {
+        private final Long userId;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Long, Integer> quantities = new LinkedHashMap<>();
+        
+        // products changed since the last flush
+        private final Set<Long> dirty = new HashSet<>();
+        
+        // sum of quantities, kept in step with every change under the cart lock
+        private int itemCount;
+        
+        private long version;
+        
+        private boolean loaded;
+        private boolean flushing;
+        private boolean evicted;
+        
+        private UserCart(Long userId) {
+            this.userId = userId;
+        }
+        
+        private int set(Long productId, int quantity) {
+            Integer previous = quantity > 0 ? quantities.put(productId, quantity) : quantities.remove(productId);
+            itemCount += Math.max(quantity, 0) - (previous != null ? previous : 0);
+            dirty.add(productId);
+            version = VERSIONS.incrementAndGet();
+            return Math.max(quantity, 0);
+        }
+    }
+    
+    public record Contents(Map<Long, Integer> quantities, long version) {
+    }
+    
+    public record Stats(int carts, int maxCarts, int hardMaxCarts, int dirtyCarts, long loads, long flushedRows,
+                        long flushFailures, long evictions, long refusals) {
+    }
+}
\ No newline at end of file
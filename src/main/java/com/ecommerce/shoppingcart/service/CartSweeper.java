@@ -0,0 +1,147 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.repository.CartItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes the cart_items rows of carts nobody has changed for idle-days.
+ *
+ * Rows are found oldest first through the updated_at index and deleted by primary key
+ * in chunks of chunk-size, each in its own short transaction, so a run never holds
+ * more than one chunk of row locks and checkout is not kept waiting. Each chunk is
+ * its own task on the shared scheduler, started pause-ms after the previous one, so
+ * the pause never holds a scheduler thread that the cart and stock flushes need. A
+ * run stops after max-chunks; what is left is picked up by the next run.
+ */
+@Component
+public class CartSweeper {
+    
+    private static final Logger log = LoggerFactory.getLogger(CartSweeper.class);
+    
+    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+    private final long idleDays;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final int maxChunks;
+    
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong rowsPurged = new AtomicLong();
+    private final AtomicLong totalChunkMillis = new AtomicLong();
+    private final AtomicLong maxChunkMillis = new AtomicLong();
+    private volatile long lastChunkMillis;
+    
+    // set while a run still has chunks scheduled
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    
+    public CartSweeper(CartItemRepository cartItemRepository, CartStore cartStore,
+                       PlatformTransactionManager transactionManager, TaskScheduler taskScheduler,
+                       @Value("${app.cart.sweeper.idle-days:30}") long idleDays,
+                       @Value("${app.cart.sweeper.chunk-size:500}") int chunkSize,
+                       @Value("${app.cart.sweeper.pause-ms:200}") long pauseMillis,
+                       @Value("${app.cart.sweeper.max-chunks:100}") int maxChunks,
+                       @Value("${app.cart.sweeper.chunk-timeout-seconds:5}") int chunkTimeoutSeconds) {
+        this.cartItemRepository = cartItemRepository;
+        this.cartStore = cartStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(chunkTimeoutSeconds);
+        this.taskScheduler = taskScheduler;
+        this.idleDays = idleDays;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.maxChunks = maxChunks;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.cart.sweeper.interval-ms:900000}",
+               initialDelayString = "${app.cart.sweeper.initial-delay-ms:60000}")
+    public void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        runs.incrementAndGet();
+        // one cutoff per run, so rows touched during the run are never candidates
+        sweepChunk(LocalDateTime.now().minusDays(idleDays), 0);
+    }
+    
+    private void sweepChunk(LocalDateTime cutoff, int chunk) {
+        boolean more = false;
+        try {
+            more = purgeChunk(cutoff) == chunkSize && chunk + 1 < maxChunks;
+        } catch (RuntimeException e) {
+            log.warn("Abandoned cart sweep stopped; continuing on the next run", e);
+        }
+        if (!more) {
+            sweeping.set(false);
+            return;
+        }
+        try {
+            taskScheduler.schedule(() -> sweepChunk(cutoff, chunk + 1), Instant.now().plusMillis(pauseMillis));
+        } catch (TaskRejectedException e) {
+            // the scheduler is shutting down
+            sweeping.set(false);
+        }
+    }
+    
+    /**
+     * Delete up to chunk-size stale rows; returns the number of candidate rows found
+     */
+    private int purgeChunk(LocalDateTime cutoff) {
+        long start = System.nanoTime();
+        Set<Long> userIds = new HashSet<>();
+        int found = transactionTemplate.execute(status -> {
+            List<Object[]> rows = cartItemRepository.findStaleIds(cutoff, Limit.of(chunkSize));
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                ids.add((Long) row[0]);
+                userIds.add((Long) row[1]);
+            }
+            rowsPurged.addAndGet(cartItemRepository.deleteStale(ids, cutoff));
+            return rows.size();
+        });
+        if (found == 0) {
+            return 0;
+        }
+        cartStore.onPurged(userIds);
+        
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        chunks.incrementAndGet();
+        totalChunkMillis.addAndGet(millis);
+        maxChunkMillis.accumulateAndGet(millis, Math::max);
+        lastChunkMillis = millis;
+        return found;
+    }
+    
+    public Stats getStats() {
+        long chunkCount = chunks.get();
+        return new Stats(runs.get(), chunkCount, rowsPurged.get(), lastChunkMillis, maxChunkMillis.get(),
+                chunkCount > 0 ? totalChunkMillis.get() / chunkCount : 0);
+    }
+    
+    public record Stats(long runs, long chunks, long rowsPurged, long lastChunkMillis, long maxChunkMillis,
+                        long avgChunkMillis) {
+    }
+}
\ No newline at end of file
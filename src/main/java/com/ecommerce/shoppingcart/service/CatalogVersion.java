@@ -0,0 +1,51 @@
+package com.ecommerce.shoppingcart.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version of the product catalog, bumped after every committed product
+ * write. Catalog responses are tagged with it so unchanged data can be answered
+ * with 304 Not Modified without touching the database.
+ *
+ * Stock holds and their release do not bump it unless a product goes in or out of
+ * stock, so the held units shown in a cached response can lag; checkout always
+ * checks the stored row. Last-Modified is kept in whole seconds, the resolution of
+ * the HTTP date it is sent as.
+ *
+ * The version restarts at 0 with the application, so the ETag also carries the
+ * start time to keep tags from a previous run from matching.
+ */
+@Component
+public class CatalogVersion {
+    
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = currentSecond();
+    
+    public void bump() {
+        version.incrementAndGet();
+        lastModified = currentSecond();
+    }
+    
+    public long getVersion() {
+        return version.get();
+    }
+    
+    /**
+     * Strong ETag for the current catalog state
+     */
+    public String getETag() {
+        return "\"" + epoch + "-" + version.get() + "\"";
+    }
+    
+    public long getLastModified() {
+        return lastModified;
+    }
+    
+    // An If-Modified-Since echoed back in whole seconds must compare equal
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000 * 1000;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,297 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.User;
+import com.ecommerce.shoppingcart.service.OrderService.PreparedOrder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group commit for checkouts. When enabled, concurrent checkouts are queued and a
+ * single worker writes them in batches: it waits up to window-micros after the first
+ * checkout for more to arrive, up to max-batch, and places them all in one
+ * transaction, so a burst of checkouts shares one commit and its batched inserts.
+ * The stock of the whole batch is held in one pass in ascending product id order, as
+ * a single checkout holds its own, so batches never lock product rows in opposite
+ * orders. If the batch as a whole is short, its orders hold their stock one at a time
+ * in arrival order, on rows the failed pass has already locked.
+ *
+ * Every checkout still gets its own result. An order that fails validation or is
+ * short of stock gives back its own holds and fails alone; if the batch as a whole
+ * cannot commit, its orders are placed again one transaction each. Two checkouts of
+ * the same user never share a batch, since both would read the same cart.
+ *
+ * When disabled, or when the queue is full or shutting down, checkouts run in their
+ * own transaction as before. A caller waits at most wait-timeout-ms for its batch; a
+ * checkout still queued by then is taken back and run on the caller's thread.
+ */
+@Component
+public class CheckoutQueue {
+    
+    private static final Logger log = LoggerFactory.getLogger(CheckoutQueue.class);
+    
+    private final OrderService orderService;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final long waitTimeoutMillis;
+    private final BlockingQueue<Checkout> queue;
+    
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong retriedBatches = new AtomicLong();
+    private final AtomicLong shortBatches = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private volatile int largestBatch;
+    
+    private volatile boolean running;
+    private Thread worker;
+    
+    public CheckoutQueue(OrderService orderService, ProductService productService,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.order.group-commit.enabled:false}") boolean enabled,
+                         @Value("${app.order.group-commit.window-micros:2000}") long windowMicros,
+                         @Value("${app.order.group-commit.max-batch:64}") int maxBatch,
+                         @Value("${app.order.group-commit.queue-capacity:10000}") int queueCapacity,
+                         @Value("${app.order.group-commit.wait-timeout-ms:10000}") long waitTimeoutMillis) {
+        this.orderService = orderService;
+        this.productService = productService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatch = maxBatch;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            running = true;
+            worker = new Thread(this::run, "checkout-group-commit");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        for (Checkout checkout; (checkout = queue.poll()) != null; ) {
+            checkout.result.completeExceptionally(new IllegalStateException("Checkout is shutting down"));
+        }
+    }
+    
+    /**
+     * Place an order from the user's cart and wait for it to be committed
+     *
+     * @throws IllegalArgumentException if the cart is empty or an item is unavailable
+     * @throws IllegalStateException if the worker has taken the checkout but not finished
+     *         it within wait-timeout-ms, or the queue shut down meanwhile
+     */
+    public Order placeOrder(User user, String shippingAddress) {
+        Checkout checkout = new Checkout(user, shippingAddress);
+        // stop() clears running before its last drain, so a checkout offered after that
+        // drain sees it here; taking it back means nobody else will complete it
+        if (!running || !queue.offer(checkout) || !running && queue.remove(checkout)) {
+            bypassed.incrementAndGet();
+            return orderService.createOrderFromCart(user, shippingAddress);
+        }
+        try {
+            return checkout.result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (queue.remove(checkout)) {
+                bypassed.incrementAndGet();
+                return orderService.createOrderFromCart(user, shippingAddress);
+            }
+            // the worker holds it and may still commit it, so it must not be placed again
+            timedOut.incrementAndGet();
+            throw new IllegalStateException("Checkout is taking longer than expected; please check your orders "
+                    + "before trying again");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the checkout");
+        }
+    }
+    
+    public Stats getStats() {
+        long batchCount = batches.get();
+        return new Stats(enabled, queue.size(), batchCount, orders.get(), rejected.get(), retriedBatches.get(),
+                shortBatches.get(), bypassed.get(), timedOut.get(), largestBatch,
+                batchCount > 0 ? (double) orders.get() / batchCount : 0);
+    }
+    
+    private void run() {
+        List<Checkout> deferred = new ArrayList<>();
+        while (running) {
+            try {
+                List<Checkout> batch = collect(deferred);
+                if (!batch.isEmpty()) {
+                    place(batch);
+                }
+            } catch (InterruptedException e) {
+                // collect() has already failed the checkouts it was holding
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Checkout group commit worker failed; continuing", e);
+            }
+        }
+        deferred.forEach(checkout -> checkout.result.completeExceptionally(
+                new IllegalStateException("Checkout is shutting down")));
+    }
+    
+    /**
+     * The next batch: checkouts deferred from the last one first, then whatever arrives
+     * within the window. A user's second checkout is deferred to the next batch.
+     */
+    private List<Checkout> collect(List<Checkout> deferred) throws InterruptedException {
+        List<Checkout> candidates = new ArrayList<>(deferred);
+        deferred.clear();
+        try {
+            if (candidates.isEmpty()) {
+                candidates.add(queue.take());
+            }
+            long deadline = System.nanoTime() + windowNanos;
+            while (candidates.size() < maxBatch) {
+                long remaining = deadline - System.nanoTime();
+                Checkout next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                if (next == null) {
+                    break;
+                }
+                candidates.add(next);
+            }
+        } catch (InterruptedException e) {
+            // these are out of the queue, so stop() would never see them
+            candidates.forEach(checkout -> checkout.result.completeExceptionally(
+                    new IllegalStateException("Checkout is shutting down")));
+            throw e;
+        }
+        
+        List<Checkout> batch = new ArrayList<>(candidates.size());
+        Set<Long> users = new HashSet<>();
+        for (Checkout checkout : candidates) {
+            (users.add(checkout.user.getId()) ? batch : deferred).add(checkout);
+        }
+        return batch;
+    }
+    
+    private void place(List<Checkout> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> placeInOneTransaction(batch));
+        } catch (RuntimeException e) {
+            log.warn("Could not commit a batch of {} checkouts; placing them one by one", batch.size(), e);
+            retriedBatches.incrementAndGet();
+            for (Checkout checkout : batch) {
+                try {
+                    checkout.order = orderService.createOrderFromCart(checkout.user, checkout.shippingAddress);
+                    checkout.failure = null;
+                } catch (RuntimeException single) {
+                    checkout.order = null;
+                    checkout.failure = single;
+                }
+            }
+        }
+        
+        batches.incrementAndGet();
+        largestBatch = Math.max(largestBatch, batch.size());
+        for (Checkout checkout : batch) {
+            if (checkout.failure != null) {
+                rejected.incrementAndGet();
+                checkout.result.completeExceptionally(checkout.failure);
+            } else {
+                orders.incrementAndGet();
+                checkout.result.complete(checkout.order);
+            }
+        }
+    }
+    
+    private void placeInOneTransaction(List<Checkout> batch) {
+        Map<Checkout, PreparedOrder> prepared = new HashMap<>();
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Checkout checkout : batch) {
+            try {
+                PreparedOrder order = orderService.prepareOrder(checkout.user, checkout.shippingAddress);
+                prepared.put(checkout, order);
+                order.ordered().forEach((productId, quantity) -> quantities.merge(productId, quantity, Integer::sum));
+            } catch (IllegalArgumentException e) {
+                checkout.failure = e;
+            }
+        }
+        if (prepared.isEmpty()) {
+            return;
+        }
+        
+        boolean held;
+        try {
+            productService.reserveStock(quantities);
+            held = true;
+        } catch (IllegalArgumentException e) {
+            shortBatches.incrementAndGet();
+            held = false;
+        }
+        for (Checkout checkout : batch) {
+            PreparedOrder order = prepared.get(checkout);
+            if (order == null) {
+                continue;
+            }
+            try {
+                checkout.order = held ? orderService.recordOrder(order) : orderService.placeOrder(order);
+            } catch (IllegalArgumentException e) {
+                checkout.failure = e;
+            }
+        }
+    }
+    
+    private static final class Checkout {
+        private final User user;
+        private final String shippingAddress;
+        private final CompletableFuture<Order> result = new CompletableFuture<>();
+        
+        // written and read only by the worker
+        private Order order;
+        private RuntimeException failure;
+        
+        private Checkout(User user, String shippingAddress) {
+            this.user = user;
+            this.shippingAddress = shippingAddress;
+        }
+    }
+    
+    public record Stats(boolean enabled, int queued, long batches, long orders, long rejected, long retriedBatches,
+                        long shortBatches, long bypassed, long timedOut, int largestBatch, double averageBatch) {
+    }
+}
\ No newline at end of file
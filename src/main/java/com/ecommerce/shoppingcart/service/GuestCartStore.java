@@ -0,0 +1,225 @@
+package com.ecommerce.shoppingcart.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carts of visitors who are not logged in, keyed by the token in their guest cart
+ * cookie. Guest carts live only in memory and are never written to cart_items;
+ * on login they are merged into the user's cart and dropped from here.
+ *
+ * The store holds at most max-carts carts, evicting the least recently used one when
+ * full, and a cart that has not been used for ttl-minutes expires.
+ */
+@Component
+public class GuestCartStore {
+    
+    private final int maxCarts;
+    private final long ttlNanos;
+    
+    // token -> cart, in access order for LRU eviction
+    private final LinkedHashMap<String, GuestCart> carts = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    
+    public GuestCartStore(@Value("${app.cart.guest.max-carts:50000}") int maxCarts,
+                          @Value("${app.cart.guest.ttl-minutes:1440}") long ttlMinutes) {
+        this.maxCarts = maxCarts;
+        this.ttlNanos = ttlMinutes * 60_000_000_000L;
+    }
+    
+    /**
+     * Quantities per product id in the order they were added; empty for an unknown token
+     */
+    public Map<Long, Integer> getQuantities(String token) {
+        GuestCart cart = find(token);
+        if (cart == null) {
+            return Collections.emptyMap();
+        }
+        synchronized (cart) {
+            return new LinkedHashMap<>(cart.quantities);
+        }
+    }
+    
+    public int getItemCount(String token) {
+        GuestCart cart = find(token);
+        if (cart == null) {
+            return 0;
+        }
+        synchronized (cart) {
+            return cart.itemCount;
+        }
+    }
+    
+    /**
+     * Add to the quantity of a product, creating the cart if needed; returns the new quantity
+     */
+    public int add(String token, Long productId, int quantity) {
+        GuestCart cart = findOrCreate(token);
+        synchronized (cart) {
+            return cart.set(productId, cart.quantities.getOrDefault(productId, 0) + quantity);
+        }
+    }
+    
+    /**
+     * Set the quantity of a product already in the cart; zero or less removes it
+     */
+    public void update(String token, Long productId, int quantity) {
+        GuestCart cart = find(token);
+        if (cart != null) {
+            synchronized (cart) {
+                if (cart.quantities.containsKey(productId)) {
+                    cart.set(productId, quantity);
+                }
+            }
+        }
+    }
+    
+    public void remove(String token, Long productId) {
+        GuestCart cart = find(token);
+        if (cart != null) {
+            synchronized (cart) {
+                cart.set(productId, 0);
+            }
+        }
+    }
+    
+    public void clear(String token) {
+        synchronized (carts) {
+            carts.remove(token);
+        }
+    }
+    
+    /**
+     * Remove the cart and return its contents, for merging into a user's cart on login.
+     * Taking the cart, rather than reading it, keeps two logins with the same cookie
+     * from merging it twice; a merge that fails must {@link #restore} it.
+     */
+    public Map<Long, Integer> take(String token) {
+        GuestCart cart;
+        synchronized (carts) {
+            cart = carts.remove(token);
+        }
+        if (cart == null) {
+            return Collections.emptyMap();
+        }
+        merges.incrementAndGet();
+        synchronized (cart) {
+            return new LinkedHashMap<>(cart.quantities);
+        }
+    }
+    
+    /**
+     * Put taken contents back after a failed merge, adding them to anything the guest
+     * put in a new cart under the same token meanwhile
+     */
+    public void restore(String token, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        merges.decrementAndGet();
+        GuestCart cart = findOrCreate(token);
+        synchronized (cart) {
+            quantities.forEach((productId, quantity) ->
+                    cart.set(productId, cart.quantities.getOrDefault(productId, 0) + quantity));
+        }
+    }
+    
+    /**
+     * Drop carts that have not been used within the time to live
+     */
+    @Scheduled(fixedDelayString = "${app.cart.guest.sweep-interval-ms:60000}")
+    public void expireIdle() {
+        long now = System.nanoTime();
+        synchronized (carts) {
+            // access order puts the least recently used carts first
+            Iterator<GuestCart> eldest = carts.values().iterator();
+            while (eldest.hasNext()) {
+                if (now - eldest.next().lastAccess < ttlNanos) {
+                    break;
+                }
+                eldest.remove();
+                expirations.incrementAndGet();
+            }
+        }
+    }
+    
+    public Stats getStats() {
+        int size;
+        synchronized (carts) {
+            size = carts.size();
+        }
+        return new Stats(size, maxCarts, evictions.get(), expirations.get(), merges.get());
+    }
+    
+    private GuestCart find(String token) {
+        if (token == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        synchronized (carts) {
+            GuestCart cart = carts.get(token);
+            if (cart == null) {
+                return null;
+            }
+            if (now - cart.lastAccess >= ttlNanos) {
+                carts.remove(token);
+                expirations.incrementAndGet();
+                return null;
+            }
+            cart.lastAccess = now;
+            return cart;
+        }
+    }
+    
+    private GuestCart findOrCreate(String token) {
+        GuestCart cart = find(token);
+        if (cart != null) {
+            return cart;
+        }
+        synchronized (carts) {
+            cart = carts.get(token);
+            if (cart == null) {
+                cart = new GuestCart(System.nanoTime());
+                carts.put(token, cart);
+                Iterator<GuestCart> eldest = carts.values().iterator();
+                while (carts.size() > maxCarts && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                    evictions.incrementAndGet();
+                }
+            }
+            return cart;
+        }
+    }
+    
+    private static final class GuestCart {
+        private final Map<Long, Integer> quantities = new LinkedHashMap<>();
+        private int itemCount;
+        
+        // written under the store lock, so it needs no lock of its own
+        private long lastAccess;
+        
+        private GuestCart(long now) {
+            this.lastAccess = now;
+        }
+        
+        private int set(Long productId, int quantity) {
+            Integer previous = quantity > 0 ? quantities.put(productId, quantity) : quantities.remove(productId);
+            itemCount += Math.max(quantity, 0) - (previous != null ? previous : 0);
+            return Math.max(quantity, 0);
+        }
+    }
+    
+    public record Stats(int carts, int maxCarts, long evictions, long expirations, long merges) {
+    }
+}
\ No newline at end of file
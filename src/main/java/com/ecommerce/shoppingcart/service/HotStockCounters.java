@@ -0,0 +1,442 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.repository.ProductRepository;
+import com.ecommerce.shoppingcart.repository.StockReservationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory stock for "hot" products that take more holds than one database row can
+ * absorb, such as flash-sale items. A hot product's available units are spread over
+ * several counters; a hold takes units from one of them with a compare-and-set, so
+ * concurrent checkouts neither lock nor touch the products row. The changes to
+ * reserved_quantity and stock_quantity are collected and written back every
+ * flush-interval-ms in one UPDATE per product. The {@link FlushListener} hears of every
+ * write-back, so the listings follow a hot product's stock at the pace of the flushes.
+ *
+ * A product turns hot under a row lock, so holds already written to the row are
+ * counted and holds written after it are claimed from the counters as well. Leaving hot
+ * mode stops new holds, waits until the holds in flight have completed, writes the
+ * remaining changes and only then hands the product back to the database path. Stock
+ * edits made while a product is hot are picked up when it leaves hot mode.
+ *
+ * Changes not yet flushed are lost if the JVM stops, while the HELD reservations they
+ * belong to are not. The held units are therefore the source of truth: whenever a
+ * product turns hot, and at startup for the products still flagged hot in their row,
+ * reserved_quantity is set back to their sum. A clean shutdown hands every product
+ * back to the database path first, so only a crash leaves flagged rows behind.
+ */
+@Component
+public class HotStockCounters {
+    
+    private static final Logger log = LoggerFactory.getLogger(HotStockCounters.class);
+    
+    // Counters sit 64 bytes apart so that shards do not share a cache line
+    private static final int STRIDE = 16;
+    
+    public enum Admission {
+        TAKEN, SHORT, NOT_HOT
+    }
+    
+    private final ProductRepository productRepository;
+    private final StockReservationRepository reservationRepository;
+    private final ProductCache productCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int shards;
+    private final long drainTimeoutMillis;
+    
+    private final ConcurrentHashMap<Long, HotSku> skus = new ConcurrentHashMap<>();
+    private volatile FlushListener flushListener = (productId, stockDelta, reservedDelta) -> { };
+    
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong reconciled = new AtomicLong();
+    
+    public HotStockCounters(ProductRepository productRepository, StockReservationRepository reservationRepository,
+                            ProductCache productCache,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.inventory.hot.shards:0}") int shards,
+                            @Value("${app.inventory.hot.drain-timeout-ms:5000}") long drainTimeoutMillis) {
+        this.productRepository = productRepository;
+        this.reservationRepository = reservationRepository;
+        this.productCache = productCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        int wanted = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        this.shards = Integer.highestOneBit(Math.max(wanted - 1, 1)) << 1;
+        this.drainTimeoutMillis = drainTimeoutMillis;
+    }
+    
+    /**
+     * Nothing is hot at startup, so the products still flagged hot were hot when the
+     * JVM stopped; correct the reserved_quantity a lost flush left behind and clear
+     * the flag
+     */
+    @PostConstruct
+    public void reconcileReservedQuantities() {
+        int corrected = transactionTemplate.execute(status -> {
+            int changed = productRepository.reconcileReservedQuantities(LocalDateTime.now());
+            productRepository.clearHotStock();
+            return changed;
+        });
+        if (corrected > 0) {
+            reconciled.addAndGet(corrected);
+            log.warn("Reset reserved_quantity of {} products to the sum of their held reservations", corrected);
+        }
+    }
+    
+    /**
+     * Write back and hand over every hot product, so a clean restart has nothing to
+     * reconcile
+     */
+    @PreDestroy
+    public void disableAll() {
+        for (Long productId : new ArrayList<>(skus.keySet())) {
+            try {
+                disable(productId);
+            } catch (RuntimeException e) {
+                log.warn("Could not hand hot product {} back on shutdown; it is reconciled at startup",
+                        productId, e);
+            }
+        }
+    }
+    
+    /**
+     * Tell the listener about every change written back to a products row
+     */
+    public void setFlushListener(FlushListener flushListener) {
+        this.flushListener = flushListener;
+    }
+    
+    public boolean isHot(Long productId) {
+        return skus.containsKey(productId);
+    }
+    
+    /**
+     * Take units for a hold placed in the current transaction; they go back to the
+     * counters if the transaction rolls back
+     */
+    public Admission reserve(Long productId, int quantity) {
+        HotSku sku = enter(productId);
+        if (sku == null) {
+            return Admission.NOT_HOT;
+        }
+        if (!sku.take(quantity)) {
+            sku.inFlight.decrementAndGet();
+            return Admission.SHORT;
+        }
+        onCompletion(sku, () -> sku.pendingReserved.addAndGet(quantity), () -> sku.giveBack(quantity));
+        return Admission.TAKEN;
+    }
+    
+    /**
+     * Called after a hold was written to the products row. If the product turned hot
+     * before that write committed, the counters were loaded without it, so the units
+     * are taken from them as well; returns false if they are not there.
+     */
+    public boolean claimAfterDatabaseReserve(Long productId, int quantity) {
+        HotSku sku = enter(productId);
+        if (sku == null) {
+            return true;
+        }
+        if (!sku.take(quantity)) {
+            sku.inFlight.decrementAndGet();
+            return false;
+        }
+        onCompletion(sku, () -> { }, () -> sku.giveBack(quantity));
+        return true;
+    }
+    
+    /**
+     * Turn held units into a sale; returns false if the product is not hot
+     */
+    public boolean commit(Long productId, int quantity) {
+        HotSku sku = enter(productId);
+        if (sku == null) {
+            return false;
+        }
+        onCompletion(sku, () -> {
+            sku.pendingStock.addAndGet(-quantity);
+            sku.pendingReserved.addAndGet(-quantity);
+        }, () -> { });
+        return true;
+    }
+    
+    /**
+     * Give held units back; returns false if the product is not hot
+     */
+    public boolean release(Long productId, int quantity) {
+        HotSku sku = enter(productId);
+        if (sku == null) {
+            return false;
+        }
+        onCompletion(sku, () -> {
+            sku.pendingReserved.addAndGet(-quantity);
+            sku.giveBack(quantity);
+        }, () -> { });
+        return true;
+    }
+    
+    /**
+     * Serve the product's holds from in-memory counters, loaded under a row lock from
+     * its stock less its held reservations. A reserved_quantity that disagrees with
+     * the reservations is corrected first.
+     *
+     * @throws IllegalArgumentException if there is no such product
+     */
+    public void enable(Long productId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findByIdForUpdate(productId)
+                    .orElseThrow(() -> new IllegalArgumentException("Product not found"));
+            if (skus.containsKey(productId)) {
+                return;
+            }
+            // the row lock keeps database holds from changing either side meanwhile
+            int held = reservationRepository.sumHeldQuantity(productId);
+            if (held != product.getReservedQuantity()) {
+                productRepository.applyStockChanges(productId, 0, held - product.getReservedQuantity(),
+                        LocalDateTime.now());
+                productCache.invalidate(productId);
+                reconciled.incrementAndGet();
+                log.warn("Reset reserved_quantity of product {} from {} to its held reservations, {}",
+                        productId, product.getReservedQuantity(), held);
+            }
+            int available = Math.max(product.getStockQuantity() - held, 0);
+            productRepository.setHotStock(productId, true);
+            skus.put(productId, new HotSku(productId, available, shards));
+        });
+    }
+    
+    /**
+     * Hand the product back to the database path once its holds in flight have
+     * completed and every change is written
+     *
+     * @throws IllegalStateException if holds are still in flight after drain-timeout-ms
+     */
+    public void disable(Long productId) {
+        HotSku sku = skus.get(productId);
+        if (sku == null) {
+            return;
+        }
+        sku.draining = true;
+        try {
+            long deadline = System.nanoTime() + drainTimeoutMillis * 1_000_000;
+            while (sku.inFlight.get() > 0) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Holds of product " + productId + " are still in flight");
+                }
+                Thread.sleep(1);
+            }
+            synchronized (sku) {
+                if (!flush(sku)) {
+                    throw new IllegalStateException("Could not write the stock of product " + productId);
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> productRepository.setHotStock(productId, false));
+                } catch (RuntimeException e) {
+                    // everything is written, so a flag left set only costs a reconcile at startup
+                    log.warn("Could not clear the hot flag of product {}", productId, e);
+                }
+                skus.remove(productId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while draining product " + productId);
+        } finally {
+            sku.draining = false;
+        }
+    }
+    
+    /**
+     * Write the collected changes of every hot product to its row
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.hot.flush-interval-ms:500}")
+    public void flush() {
+        for (HotSku sku : skus.values()) {
+            synchronized (sku) {
+                flush(sku);
+            }
+        }
+    }
+    
+    private boolean flush(HotSku sku) {
+        int reserved = sku.pendingReserved.getAndSet(0);
+        int stock = sku.pendingStock.getAndSet(0);
+        if (reserved == 0 && stock == 0) {
+            return true;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                productRepository.applyStockChanges(sku.productId, stock, reserved, LocalDateTime.now());
+                flushListener.onFlushed(sku.productId, stock, reserved);
+            });
+            productCache.invalidate(sku.productId);
+            flushes.incrementAndGet();
+            return true;
+        } catch (RuntimeException e) {
+            sku.pendingReserved.addAndGet(reserved);
+            sku.pendingStock.addAndGet(stock);
+            flushFailures.incrementAndGet();
+            log.warn("Could not write the stock of hot product {}; retrying on the next flush", sku.productId, e);
+            return false;
+        }
+    }
+    
+    public Stats getStats() {
+        List<SkuStats> products = new ArrayList<>();
+        for (HotSku sku : skus.values()) {
+            products.add(new SkuStats(sku.productId, sku.available(), sku.pendingReserved.get(),
+                    sku.pendingStock.get(), sku.inFlight.get()));
+        }
+        return new Stats(shards, flushes.get(), flushFailures.get(), reconciled.get(), products);
+    }
+    
+    /**
+     * The product's counters with one more operation counted in flight, or null if it
+     * is not hot. While the product drains this waits, and once the drain has finished
+     * the product is no longer hot.
+     */
+    private HotSku enter(Long productId) {
+        while (true) {
+            HotSku sku = skus.get(productId);
+            if (sku == null) {
+                return null;
+            }
+            if (!sku.draining) {
+                sku.inFlight.incrementAndGet();
+                // checked again after counting in, since a drain only waits for what it sees
+                if (!sku.draining && skus.get(productId) == sku) {
+                    return sku;
+                }
+                sku.inFlight.decrementAndGet();
+            }
+            LockSupport.parkNanos(100_000);
+        }
+    }
+    
+    // The in-flight count lets a drain wait for every change that has yet to be collected
+    private static void onCompletion(HotSku sku, Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            sku.inFlight.decrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    (status == STATUS_COMMITTED ? onCommit : onRollback).run();
+                } finally {
+                    sku.inFlight.decrementAndGet();
+                }
+            }
+        });
+    }
+    
+    private static final class HotSku {
+        private final Long productId;
+        private final AtomicIntegerArray counters;
+        private final int mask;
+        
+        // changes not yet written to the row
+        private final AtomicInteger pendingReserved = new AtomicInteger();
+        private final AtomicInteger pendingStock = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean draining;
+        
+        private HotSku(Long productId, int available, int shards) {
+            this.productId = productId;
+            this.counters = new AtomicIntegerArray(shards * STRIDE);
+            this.mask = shards - 1;
+            for (int i = 0; i < shards; i++) {
+                counters.set(i * STRIDE, available / shards + (i < available % shards ? 1 : 0));
+            }
+        }
+        
+        private boolean take(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt() & mask;
+            for (int i = 0; i <= mask; i++) {
+                int slot = ((start + i) & mask) * STRIDE;
+                int current = counters.get(slot);
+                while (current >= quantity) {
+                    if (counters.compareAndSet(slot, current, current - quantity)) {
+                        return true;
+                    }
+                    current = counters.get(slot);
+                }
+            }
+            return takeAcrossShards(quantity);
+        }
+        
+        // No single shard holds enough: collect the units from several, or none at all
+        private synchronized boolean takeAcrossShards(int quantity) {
+            int taken = 0;
+            for (int i = 0; i <= mask && taken < quantity; i++) {
+                int slot = i * STRIDE;
+                int current = counters.get(slot);
+                while (current > 0) {
+                    int part = Math.min(current, quantity - taken);
+                    if (counters.compareAndSet(slot, current, current - part)) {
+                        taken += part;
+                        break;
+                    }
+                    current = counters.get(slot);
+                }
+            }
+            if (taken < quantity) {
+                giveBack(taken);
+                return false;
+            }
+            return true;
+        }
+        
+        private void giveBack(int quantity) {
+            counters.addAndGet((ThreadLocalRandom.current().nextInt() & mask) * STRIDE, quantity);
+        }
+        
+        private int available() {
+            int sum = 0;
+            for (int i = 0; i <= mask; i++) {
+                sum += counters.get(i * STRIDE);
+            }
+            return sum;
+        }
+    }
+    
+    /**
+     * Called inside the transaction that writes a hot product's collected changes
+     */
+    @FunctionalInterface
+    public interface FlushListener {
+        void onFlushed(Long productId, int stockDelta, int reservedDelta);
+    }
+    
+    /**
+     * @param reconciled products whose reserved_quantity had to be reset to their held
+     *                   reservations
+     */
+    public record Stats(int shards, long flushes, long flushFailures, long reconciled, List<SkuStats> products) {
+    }
+    
+    public record SkuStats(Long productId, int available, int pendingReserved, int pendingStock, int inFlight) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.OutboxMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Default sink: logs each event at debug level, for running without a downstream
+ * consumer
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "log", matchIfMissing = true)
+public class LogOutboxSink implements OutboxSink {
+    
+    private static final Logger log = LoggerFactory.getLogger(LogOutboxSink.class);
+    
+    @Override
+    public void deliver(List<OutboxMessage> messages) {
+        if (log.isDebugEnabled()) {
+            for (OutboxMessage message : messages) {
+                log.debug("Outbox event {} {} {}#{}: {}", message.id(), message.eventType(),
+                        message.aggregateType(), message.aggregateId(), message.payload());
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,304 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.OrderEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process bus for order events. Publishers claim a sequence number and write the
+ * event into a pre-allocated ring of ring-size slots; each {@link OrderEventListener}
+ * has its own consumer thread that follows the ring at its own pace and takes every
+ * event published since its last pass, up to max-batch, in one call. Publishing costs
+ * a slot write whatever the number of listeners, so adding one does not slow the
+ * requests that publish.
+ *
+ * A slot is reused only once every consumer has passed it. When the slowest consumer
+ * is a whole ring behind, publishers wait for it rather than drop events.
+ *
+ * Idle consumers wait as set by wait-strategy: BUSY_SPIN and YIELDING answer fastest
+ * but keep a core busy, SLEEPING backs off to short parks, BLOCKING sleeps on a
+ * condition the publishers signal.
+ */
+@Component
+public class OrderEventBus {
+    
+    private static final Logger log = LoggerFactory.getLogger(OrderEventBus.class);
+    
+    private static final int SPIN_TRIES = 100;
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long BLOCK_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    
+    public enum WaitStrategy {
+        BUSY_SPIN, YIELDING, SLEEPING, BLOCKING
+    }
+    
+    private final OrderEvent[] slots;
+    // the sequence whose event each slot holds, so consumers know it is written
+    private final AtomicLongArray published;
+    private final int mask;
+    private final int maxBatch;
+    private final WaitStrategy waitStrategy;
+    private final List<Consumer> consumers = new ArrayList<>();
+    
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong producerWaits = new AtomicLong();
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition eventsPublished = lock.newCondition();
+    private final AtomicLong blockedConsumers = new AtomicLong();
+    
+    private volatile boolean running;
+    
+    public OrderEventBus(List<OrderEventListener> listeners,
+                         @Value("${app.order.events.ring-size:8192}") int ringSize,
+                         @Value("${app.order.events.max-batch:256}") int maxBatch,
+                         @Value("${app.order.events.wait-strategy:BLOCKING}") WaitStrategy waitStrategy) {
+        int capacity = Integer.highestOneBit(Math.max(ringSize - 1, 1)) << 1;
+        this.slots = new OrderEvent[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+        this.maxBatch = maxBatch;
+        this.waitStrategy = waitStrategy;
+        for (OrderEventListener listener : listeners) {
+            consumers.add(new Consumer(listener));
+        }
+    }
+    
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (Consumer consumer : consumers) {
+            consumer.thread.start();
+        }
+    }
+    
+    /**
+     * Let the consumers deliver what was already published, then stop them
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        signalConsumers();
+        for (Consumer consumer : consumers) {
+            consumer.thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+    
+    /**
+     * Publish the event once the current transaction commits, or now if there is none.
+     * Nothing is published for a transaction that rolls back.
+     */
+    public void publishAfterCommit(OrderEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+            });
+        } else {
+            publish(event);
+        }
+    }
+    
+    public void publish(OrderEvent event) {
+        if (consumers.isEmpty()) {
+            return;
+        }
+        long sequence = claimed.incrementAndGet();
+        awaitFreeSlot(sequence);
+        slots[index(sequence)] = event;
+        published.set(index(sequence), sequence);
+        if (blockedConsumers.get() > 0) {
+            signalConsumers();
+        }
+    }
+    
+    public Stats getStats() {
+        long cursor = claimed.get();
+        List<ConsumerStats> consumerStats = new ArrayList<>(consumers.size());
+        for (Consumer consumer : consumers) {
+            long batchCount = consumer.batches.get();
+            consumerStats.add(new ConsumerStats(consumer.name, consumer.processed.get(), batchCount,
+                    consumer.largestBatch, batchCount > 0 ? (double) consumer.processed.get() / batchCount : 0,
+                    consumer.failures.get(), Math.max(cursor - consumer.sequence, 0),
+                    TimeUnit.NANOSECONDS.toMillis(consumer.handlerNanos.get())));
+        }
+        return new Stats(slots.length, waitStrategy, cursor + 1, producerWaits.get(), consumerStats);
+    }
+    
+    private void awaitFreeSlot(long sequence) {
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint <= slowestConsumer()) {
+            return;
+        }
+        producerWaits.incrementAndGet();
+        for (int tries = 0; wrapPoint > slowestConsumer(); tries++) {
+            if (tries < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(SLEEP_NANOS);
+            }
+        }
+    }
+    
+    private long slowestConsumer() {
+        long slowest = Long.MAX_VALUE;
+        for (Consumer consumer : consumers) {
+            slowest = Math.min(slowest, consumer.sequence);
+        }
+        return slowest;
+    }
+    
+    private void run(Consumer consumer) {
+        long next = consumer.sequence + 1;
+        int idle = 0;
+        while (true) {
+            long last = next - 1;
+            while (last - next + 1 < maxBatch && published.get(index(last + 1)) == last + 1) {
+                last++;
+            }
+            if (last < next) {
+                if (!running) {
+                    return;
+                }
+                idle = waitForEvents(next, idle);
+                continue;
+            }
+            
+            List<OrderEvent> batch = consumer.batch;
+            batch.clear();
+            for (long sequence = next; sequence <= last; sequence++) {
+                batch.add(slots[index(sequence)]);
+            }
+            long started = System.nanoTime();
+            try {
+                consumer.listener.onEvents(batch);
+            } catch (RuntimeException e) {
+                consumer.failures.incrementAndGet();
+                log.error("Order event listener {} failed on events {} to {}", consumer.name, next, last, e);
+            }
+            consumer.handlerNanos.addAndGet(System.nanoTime() - started);
+            consumer.processed.addAndGet(batch.size());
+            consumer.batches.incrementAndGet();
+            consumer.largestBatch = Math.max(consumer.largestBatch, batch.size());
+            batch.clear();
+            
+            // frees the slots for publishers
+            consumer.sequence = last;
+            next = last + 1;
+            idle = 0;
+        }
+    }
+    
+    private int waitForEvents(long next, int idle) {
+        switch (waitStrategy) {
+            case BUSY_SPIN -> Thread.onSpinWait();
+            case YIELDING -> {
+                if (idle < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            case SLEEPING -> {
+                if (idle < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else if (idle < 2 * SPIN_TRIES) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(SLEEP_NANOS);
+                }
+            }
+            case BLOCKING -> {
+                lock.lock();
+                try {
+                    blockedConsumers.incrementAndGet();
+                    // publishers check for blocked consumers after publishing, so
+                    // checking again under the lock cannot miss a signal
+                    if (running && published.get(index(next)) != next) {
+                        eventsPublished.awaitNanos(BLOCK_TIMEOUT_NANOS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    blockedConsumers.decrementAndGet();
+                    lock.unlock();
+                }
+            }
+        }
+        return idle + 1;
+    }
+    
+    private void signalConsumers() {
+        lock.lock();
+        try {
+            eventsPublished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private int index(long sequence) {
+        return (int) sequence & mask;
+    }
+    
+    private final class Consumer {
+        private final OrderEventListener listener;
+        private final String name;
+        private final Thread thread;
+        private final List<OrderEvent> batch = new ArrayList<>();
+        
+        // last sequence handled; publishers read it to know which slots are free
+        private volatile long sequence = -1;
+        
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong handlerNanos = new AtomicLong();
+        private volatile int largestBatch;
+        
+        private Consumer(OrderEventListener listener) {
+            this.listener = listener;
+            this.name = ClassUtils.getUserClass(listener).getSimpleName();
+            this.thread = new Thread(() -> run(this), "order-events-" + name);
+            this.thread.setDaemon(true);
+        }
+    }
+    
+    /**
+     * @param published events published since startup
+     * @param producerWaits times a publisher had to wait for a full ring to drain
+     */
+    public record Stats(int capacity, WaitStrategy waitStrategy, long published, long producerWaits,
+                        List<ConsumerStats> consumers) {
+    }
+    
+    /**
+     * @param lag events published but not yet handled by this listener
+     * @param handlerMillis time spent inside the listener; processed / handlerMillis is
+     *                      the throughput it could sustain
+     */
+    public record ConsumerStats(String name, long processed, long batches, int largestBatch, double avgBatchSize,
+                                long failures, long lag, long handlerMillis) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.OrderEvent;
+
+import java.util.List;
+
+/**
+ * A subscriber of the {@link OrderEventBus}. Every listener bean gets its own consumer
+ * thread and sees every event, in publication order.
+ */
+public interface OrderEventListener {
+    
+    /**
+     * Handle the events published since the previous call. The list is reused by the
+     * bus and only valid during the call. An exception is logged and counted, and the
+     * batch is not delivered again.
+     */
+    void onEvents(List<OrderEvent> events);
+}
\ No newline at end of file
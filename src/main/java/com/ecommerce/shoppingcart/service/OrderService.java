@@ -1,100 +1,302 @@
 package com.ecommerce.shoppingcart.service;
 
+import com.ecommerce.shoppingcart.dto.CartSnapshot;
+import com.ecommerce.shoppingcart.dto.CursorPage;
+import com.ecommerce.shoppingcart.dto.OrderCursor;
+import com.ecommerce.shoppingcart.dto.OrderEvent;
+import com.ecommerce.shoppingcart.dto.OrderSearchFilter;
+import com.ecommerce.shoppingcart.dto.OrderSummary;
 import com.ecommerce.shoppingcart.model.*;
 import com.ecommerce.shoppingcart.repository.OrderRepository;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class OrderService {
     
+    private static final int MAX_HISTORY_PAGE_SIZE = 50;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    
     private final OrderRepository orderRepository;
     private final CartService cartService;
     private final ProductService productService;
+    private final StockReservationService stockReservationService;
+    private final OrderEventBus orderEventBus;
+    private final OutboxService outboxService;
     
-    public OrderService(OrderRepository orderRepository, CartService cartService, ProductService productService) {
+    public OrderService(OrderRepository orderRepository, CartService cartService, ProductService productService,
+                        StockReservationService stockReservationService, OrderEventBus orderEventBus,
+                        OutboxService outboxService) {
         this.orderRepository = orderRepository;
         this.cartService = cartService;
         this.productService = productService;
+        this.stockReservationService = stockReservationService;
+        this.orderEventBus = orderEventBus;
+        this.outboxService = outboxService;
     }
     
     @Transactional
     public Order createOrderFromCart(User user, String shippingAddress) {
-        List<CartItem> cartItems = cartService.getCartItems(user);
-        if (cartItems.isEmpty()) {
+        return placeOrder(prepareOrder(user, shippingAddress));
+    }
+    
+    /**
+     * Build an order from the user's cart and check it against cached stock, without
+     * writing anything
+     *
+     * @throws IllegalArgumentException if the cart is empty or an item is unavailable
+     */
+    PreparedOrder prepareOrder(User user, String shippingAddress) {
+        CartSnapshot cart = cartService.getCartSnapshot(user);
+        if (cart.isEmpty()) {
             throw new IllegalArgumentException("Cart is empty");
         }
         
         // Validate stock availability
-        for (CartItem cartItem : cartItems) {
-            Product product = cartItem.getProduct();
-            if (!product.isActive() || product.getStockQuantity() < cartItem.getQuantity()) {
-                throw new IllegalArgumentException("Product " + product.getName() + " is not available or insufficient stock");
+        for (CartSnapshot.Line line : cart.items()) {
+            if (!line.isAvailable()) {
+                throw new IllegalArgumentException("Product " + line.product().name() + " is not available or insufficient stock");
             }
         }
         
-        // Create order
-        BigDecimal totalAmount = cartService.getCartTotal(user);
-        Order order = new Order(user, totalAmount);
+        // Create order; the total comes from the same cart read that was validated
+        Order order = new Order(user, cart.total());
         order.setShippingAddress(shippingAddress);
         
-        // Create order items and update stock
-        for (CartItem cartItem : cartItems) {
-            Product product = cartItem.getProduct();
-            OrderItem orderItem = new OrderItem(order, product, cartItem.getQuantity(), product.getPrice());
+        // Create order items
+        Map<Long, Integer> ordered = new LinkedHashMap<>();
+        for (CartSnapshot.Line line : cart.items()) {
+            Product product = line.product().toProduct();
+            OrderItem orderItem = new OrderItem(order, product, line.quantity(), product.getPrice());
             order.getOrderItems().add(orderItem);
-            
-            // Update stock
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productService.saveProduct(product);
+            ordered.put(product.getId(), line.quantity());
         }
+        return new PreparedOrder(order, ordered);
+    }
+    
+    /**
+     * Hold the stock of a prepared order and write it, in the caller's transaction. If
+     * an item is short, its other holds are given back before the exception is thrown,
+     * so the transaction can go on with other orders.
+     *
+     * @throws IllegalArgumentException if a product does not have enough available stock
+     */
+    Order placeOrder(PreparedOrder prepared) {
+        // The cart check used cached stock; the conditional hold is what prevents
+        // overselling. The hold becomes a sale when the order is paid.
+        productService.reserveStock(prepared.ordered());
+        return recordOrder(prepared);
+    }
+    
+    /**
+     * Write a prepared order whose stock the caller has already held, in the caller's
+     * transaction
+     */
+    Order recordOrder(PreparedOrder prepared) {
+        Order savedOrder = orderRepository.save(prepared.order());
+        stockReservationService.recordHolds(savedOrder, prepared.ordered());
         
-        Order savedOrder = orderRepository.save(order);
-        
-        // Clear cart
-        cartService.clearCart(user);
+        // Remove what was ordered; items added to the cart meanwhile stay in it
+        cartService.removeOrderedItems(savedOrder.getUser(), prepared.ordered());
         
+        emit(new OrderEvent.OrderPlaced(savedOrder.getId(), savedOrder.getUser().getId(),
+                savedOrder.getTotalAmount(), Map.copyOf(prepared.ordered()), savedOrder.getOrderDate()));
         return savedOrder;
     }
     
-    public List<Order> getUserOrders(User user) {
-        return orderRepository.findByUserOrderByOrderDateDesc(user);
+    /**
+     * One page of the user's orders, newest first, read by keyset from the cursor.
+     * Items, products and payments come with the orders, so a page takes two queries
+     * however many orders and items it shows.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public CursorPage<Order> getOrderHistory(User user, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+        OrderCursor position = cursor != null && !cursor.isBlank() ? OrderCursor.decode(cursor) : null;
+        
+        List<Long> ids;
+        if (position == null) {
+            ids = orderRepository.findNewestIds(user.getId(), Limit.of(limit + 1));
+        } else if (position.backward()) {
+            ids = new ArrayList<>(orderRepository.findIdsNewerThan(user.getId(), position.orderDate(),
+                    position.id(), Limit.of(limit + 1)));
+        } else {
+            ids = orderRepository.findIdsOlderThan(user.getId(), position.orderDate(),
+                    position.id(), Limit.of(limit + 1));
+        }
+        
+        // one extra row tells whether there is more in the reading direction
+        boolean more = ids.size() > limit;
+        if (more) {
+            ids = ids.subList(0, limit);
+        }
+        if (position != null && position.backward()) {
+            Collections.reverse(ids);
+        }
+        List<Order> orders = findWithDetailsInOrder(ids);
+        if (orders.isEmpty()) {
+            return new CursorPage<>(orders, null, null, null);
+        }
+        
+        boolean hasOlder = position != null && position.backward() || more;
+        boolean hasNewer = position != null && (!position.backward() || more);
+        return new CursorPage<>(orders,
+                hasOlder ? OrderCursor.after(orders.get(orders.size() - 1)).encode() : null,
+                hasNewer ? OrderCursor.before(orders.get(0)).encode() : null,
+                null);
     }
     
     public Optional<Order> getOrderById(Long orderId) {
         return orderRepository.findById(orderId);
     }
     
+    /**
+     * An order with its items, their products and its payment, loaded in one query
+     */
+    public Optional<Order> getOrderWithDetails(Long orderId) {
+        return orderRepository.findWithDetailsByIdIn(List.of(orderId)).stream().findFirst();
+    }
+    
+    /**
+     * Change an order's status; cancelling gives back the stock it holds. The order row
+     * is locked, so a cancellation waits for a payment of the order in flight.
+     */
     @Transactional
     public Order updateOrderStatus(Long orderId, Order.OrderStatus status) {
-        Optional<Order> orderOpt = orderRepository.findById(orderId);
+        Optional<Order> orderOpt = orderRepository.findByIdForUpdate(orderId);
         if (orderOpt.isPresent()) {
             Order order = orderOpt.get();
+            Order.OrderStatus previousStatus = order.getStatus();
             order.setStatus(status);
+            if (status == Order.OrderStatus.CANCELLED) {
+                stockReservationService.release(orderId);
+            }
+            if (previousStatus != status) {
+                emit(new OrderEvent.OrderStatusChanged(orderId, previousStatus, status));
+            }
             return orderRepository.save(order);
         }
         throw new IllegalArgumentException("Order not found");
     }
     
-    public List<Order> getOrdersByStatus(Order.OrderStatus status) {
-        return orderRepository.findByStatus(status);
+    /**
+     * Hold the order's stock again before taking payment, in case its holds expired
+     *
+     * @throws IllegalArgumentException if an item is no longer available
+     * @throws IllegalStateException if the order is no longer pending
+     */
+    public void holdStock(Long orderId) {
+        stockReservationService.hold(orderId);
     }
     
-    public Page<Order> getOrdersByStatus(Order.OrderStatus status, Pageable pageable) {
-        return orderRepository.findByStatus(status, pageable);
+    /**
+     * Confirm a paid order; its stock holds become a sale
+     *
+     * @throws IllegalStateException if the order is no longer pending
+     */
+    @Transactional
+    public Order confirmPayment(Long orderId, Payment payment) {
+        stockReservationService.commit(orderId);
+        orderEventBus.publishAfterCommit(new OrderEvent.PaymentCompleted(orderId, payment.getId(),
+                payment.getAmount(), payment.getTransactionId()));
+        return updateOrderStatus(orderId, Order.OrderStatus.CONFIRMED);
+    }
+    
+    /**
+     * Give back the stock of an order whose payment failed. The order stays pending and
+     * its stock is held again when payment is retried.
+     */
+    public void releaseStock(Long orderId) {
+        stockReservationService.release(orderId);
+    }
+    
+    public List<Order> getOrdersByStatus(Order.OrderStatus status) {
+        return orderRepository.findByStatus(status);
     }
     
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
     }
     
-    public Page<Order> getAllOrders(Pageable pageable) {
-        return orderRepository.findAll(pageable);
+    /**
+     * One page of the admin order search, newest first, as row projections. Like the
+     * order history it pages by keyset and never counts the matches, so the cost of a
+     * page does not grow with the number of orders.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or a range is inverted
+     */
+    public CursorPage<OrderSummary> searchOrders(OrderSearchFilter filter, String cursor, int size) {
+        if (filter.placedFrom() != null && filter.placedTo() != null
+                && filter.placedFrom().isAfter(filter.placedTo())) {
+            throw new IllegalArgumentException("The date range ends before it starts");
+        }
+        if (filter.minAmount() != null && filter.maxAmount() != null
+                && filter.minAmount().compareTo(filter.maxAmount()) > 0) {
+            throw new IllegalArgumentException("The minimum amount is above the maximum");
+        }
+        int limit = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        OrderCursor position = cursor != null && !cursor.isBlank() ? OrderCursor.decode(cursor) : null;
+        
+        List<OrderSummary> rows = orderRepository.searchOrders(filter, position, limit + 1);
+        boolean more = rows.size() > limit;
+        if (more) {
+            rows = rows.subList(0, limit);
+        }
+        if (position != null && position.backward()) {
+            rows = new ArrayList<>(rows);
+            Collections.reverse(rows);
+        }
+        if (rows.isEmpty()) {
+            return new CursorPage<>(rows, null, null, null);
+        }
+        
+        boolean hasOlder = position != null && position.backward() || more;
+        boolean hasNewer = position != null && (!position.backward() || more);
+        OrderSummary first = rows.get(0);
+        OrderSummary last = rows.get(rows.size() - 1);
+        return new CursorPage<>(rows,
+                hasOlder ? new OrderCursor(last.orderDate(), last.id(), false).encode() : null,
+                hasNewer ? new OrderCursor(first.orderDate(), first.id(), true).encode() : null,
+                null);
+    }
+    
+    // Recorded in the outbox with the change, and on the bus once it commits
+    private void emit(OrderEvent event) {
+        outboxService.record(OutboxEvent.AggregateType.ORDER, event.orderId(), event);
+        orderEventBus.publishAfterCommit(event);
+    }
+    
+    private List<Order> findWithDetailsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Order> byId = new HashMap<>();
+        for (Order order : orderRepository.findWithDetailsByIdIn(ids)) {
+            byId.put(order.getId(), order);
+        }
+        List<Order> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Order order = byId.get(id);
+            if (order != null) {
+                ordered.add(order);
+            }
+        }
+        return ordered;
+    }
+    
+    /**
+     * An order built from a cart, with the quantity ordered per product id
+     */
+    record PreparedOrder(Order order, Map<Long, Integer> ordered) {
     }
 }
\ No newline at end of file
@@ -0,0 +1,287 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.OutboxMessage;
+import com.ecommerce.shoppingcart.model.OutboxEvent;
+import com.ecommerce.shoppingcart.repository.OutboxEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers outbox events to the {@link OutboxSink} and purges them once delivered.
+ *
+ * A relay thread reads the ids of up to batch-size undelivered events, locks them with
+ * SELECT ... FOR UPDATE SKIP LOCKED, hands them to the sink and marks them delivered,
+ * all in one transaction. If another relay holds all of them it moves on to the next
+ * ids. While there is a full batch pending it claims the next one at once; otherwise
+ * it waits poll-interval-ms. Relays on other instances skip the rows this one holds, so
+ * each batch is delivered by one relay. Consumers see every event at least once and
+ * drop repeats by event id.
+ *
+ * When a batch fails as a whole its events are delivered again one per transaction, so
+ * one event the sink rejects does not hold back the rest. Each failed delivery of an
+ * event alone counts an attempt; the attempt that reaches max-attempts sets the event
+ * aside as failed. Failed events are no longer claimed and are never purged; clearing
+ * failed_at queues one again. Two failures in a row with no delivery between end the
+ * one-by-one pass, so a sink that is down costs an attempt on two events per poll
+ * rather than on the whole batch, and the relay backs off, doubling its poll interval
+ * up to 256 times while batches keep failing.
+ *
+ * Delivered events are kept for retention-minutes, then deleted in chunks of
+ * purge-chunk-size, each in its own transaction.
+ */
+@Component
+public class OutboxRelay {
+    
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+    
+    private static final int MAX_CLAIM_ATTEMPTS = 4;
+    private static final int MAX_BACKOFF_SHIFT = 8;
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long retentionMinutes;
+    private final int purgeChunkSize;
+    private final int maxPurgeChunks;
+    private final int maxAttempts;
+    
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+    private final AtomicLong purged = new AtomicLong();
+    private final AtomicLong totalBatchMillis = new AtomicLong();
+    private final AtomicLong maxBatchMillis = new AtomicLong();
+    private volatile long lastBatchMillis;
+    
+    private volatile boolean running;
+    private Thread worker;
+    
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, OutboxSink sink,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${app.outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${app.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${app.outbox.relay.poll-interval-ms:200}") long pollIntervalMillis,
+                       @Value("${app.outbox.relay.batch-timeout-seconds:10}") int batchTimeoutSeconds,
+                       @Value("${app.outbox.relay.max-attempts:20}") int maxAttempts,
+                       @Value("${app.outbox.retention-minutes:60}") long retentionMinutes,
+                       @Value("${app.outbox.purge-chunk-size:1000}") int purgeChunkSize,
+                       @Value("${app.outbox.max-purge-chunks:100}") int maxPurgeChunks) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sink = sink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(batchTimeoutSeconds);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.retentionMinutes = retentionMinutes;
+        this.purgeChunkSize = purgeChunkSize;
+        this.maxPurgeChunks = maxPurgeChunks;
+        this.maxAttempts = maxAttempts;
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            running = true;
+            worker = new Thread(this::run, "outbox-relay");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+    
+    private void run() {
+        int failures = 0;
+        while (running) {
+            try {
+                if (relayBatch() < batchSize) {
+                    Thread.sleep(pollIntervalMillis);
+                }
+                failures = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                failedBatches.incrementAndGet();
+                failures++;
+                log.warn("Outbox relay batch failed; retrying", e);
+                try {
+                    Thread.sleep(pollIntervalMillis << Math.min(failures - 1, MAX_BACKOFF_SHIFT));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Claim, deliver and mark one batch; returns the number of pending events seen, so
+     * the caller knows whether more are waiting. If the batch fails, its events are
+     * tried one at a time, and the failure is thrown only if none of them got through.
+     */
+    int relayBatch() {
+        long start = System.nanoTime();
+        List<Long> claimedIds = new ArrayList<>();
+        int[] counts;
+        try {
+            counts = claimAndDeliver(claimedIds);
+        } catch (RuntimeException e) {
+            if (claimedIds.isEmpty() || relayOneByOne(claimedIds) == 0) {
+                throw e;
+            }
+            failedBatches.incrementAndGet();
+            log.warn("Outbox relay batch failed; delivered its events one at a time", e);
+            return claimedIds.size();
+        }
+        if (counts[1] == 0) {
+            return counts[0];
+        }
+        
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        batches.incrementAndGet();
+        delivered.addAndGet(counts[1]);
+        totalBatchMillis.addAndGet(millis);
+        maxBatchMillis.accumulateAndGet(millis, Math::max);
+        lastBatchMillis = millis;
+        return counts[0];
+    }
+    
+    // Fills claimedIds before delivering, so a failed batch still tells what it held
+    private int[] claimAndDeliver(List<Long> claimedIds) {
+        return transactionTemplate.execute(status -> {
+            long afterId = 0;
+            List<Long> candidates = List.of();
+            for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+                candidates = outboxEventRepository.findUndeliveredIds(afterId, Limit.of(batchSize));
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                List<OutboxEvent> claimed = outboxEventRepository.claimUndelivered(candidates);
+                if (!claimed.isEmpty()) {
+                    claimed.forEach(event -> claimedIds.add(event.getId()));
+                    deliver(claimed);
+                    return new int[] {candidates.size(), claimed.size()};
+                }
+                // all held by another relay
+                afterId = candidates.get(candidates.size() - 1);
+            }
+            return new int[] {candidates.size(), 0};
+        });
+    }
+    
+    // Returns the number delivered; events another relay delivered meanwhile are skipped
+    private int relayOneByOne(List<Long> ids) {
+        int deliveredAlone = 0;
+        int failuresInARow = 0;
+        for (Long id : ids) {
+            try {
+                deliveredAlone += transactionTemplate.execute(status -> {
+                    List<OutboxEvent> claimed = outboxEventRepository.claimUndelivered(List.of(id));
+                    if (!claimed.isEmpty()) {
+                        deliver(claimed);
+                    }
+                    return claimed.size();
+                });
+                failuresInARow = 0;
+            } catch (RuntimeException e) {
+                recordFailedAttempt(id, e);
+                if (++failuresInARow == 2) {
+                    break;
+                }
+            }
+        }
+        delivered.addAndGet(deliveredAlone);
+        return deliveredAlone;
+    }
+    
+    private void recordFailedAttempt(Long id, RuntimeException failure) {
+        try {
+            boolean setAside = transactionTemplate.execute(status -> {
+                // no row is counted when the event was delivered or set aside meanwhile
+                if (outboxEventRepository.recordFailedAttempt(id, maxAttempts, LocalDateTime.now()) == 0) {
+                    return false;
+                }
+                return outboxEventRepository.findById(id)
+                        .map(event -> event.getFailedAt() != null)
+                        .orElse(false);
+            });
+            if (setAside) {
+                failedEvents.incrementAndGet();
+                log.error("Outbox event {} failed {} deliveries; set aside until failed_at is cleared",
+                        id, maxAttempts, failure);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not record a failed delivery of outbox event {}", id, e);
+        }
+    }
+    
+    private void deliver(List<OutboxEvent> claimed) {
+        List<OutboxMessage> messages = new ArrayList<>(claimed.size());
+        List<Long> ids = new ArrayList<>(claimed.size());
+        for (OutboxEvent event : claimed) {
+            messages.add(OutboxMessage.of(event));
+            ids.add(event.getId());
+        }
+        sink.deliver(messages);
+        outboxEventRepository.markDelivered(ids, LocalDateTime.now());
+    }
+    
+    @Scheduled(fixedDelayString = "${app.outbox.purge-interval-ms:60000}",
+               initialDelayString = "${app.outbox.purge-initial-delay-ms:60000}")
+    public void purgeDelivered() {
+        // one cutoff per run, so the chunks of a run agree on what is old enough
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        try {
+            for (int chunk = 0; chunk < maxPurgeChunks; chunk++) {
+                int deleted = transactionTemplate.execute(status -> {
+                    List<Long> ids = outboxEventRepository.findDeliveredBefore(cutoff, Limit.of(purgeChunkSize));
+                    return ids.isEmpty() ? 0 : outboxEventRepository.deleteByIdIn(ids);
+                });
+                purged.addAndGet(deleted);
+                if (deleted < purgeChunkSize) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Outbox purge stopped; continuing on the next run", e);
+        }
+    }
+    
+    public Stats getStats() {
+        long batchCount = batches.get();
+        return new Stats(enabled, delivered.get(), batchCount, failedBatches.get(), failedEvents.get(), purged.get(),
+                lastBatchMillis, maxBatchMillis.get(), batchCount > 0 ? totalBatchMillis.get() / batchCount : 0);
+    }
+    
+    // failedEvents counts the events this relay set aside
+    public record Stats(boolean enabled, long delivered, long batches, long failedBatches, long failedEvents,
+                        long purged, long lastBatchMillis, long maxBatchMillis, long avgBatchMillis) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.OrderEvent;
+import com.ecommerce.shoppingcart.model.OutboxEvent;
+import com.ecommerce.shoppingcart.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes events to the outbox table. Recording requires a transaction in progress, so
+ * an event is stored if and only if the change it describes commits; the
+ * {@link OutboxRelay} delivers it from there.
+ */
+@Service
+public class OutboxService {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(OutboxEvent.AggregateType aggregateType, Long aggregateId, OrderEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event.getClass().getSimpleName(), e);
+        }
+        outboxEventRepository.save(new OutboxEvent(aggregateType, aggregateId, event.getClass().getSimpleName(),
+                payload));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * Where the {@link OutboxRelay} delivers outbox events. The sink bean is chosen by
+ * app.outbox.sink.
+ */
+public interface OutboxSink {
+    
+    /**
+     * Deliver a batch of events in id order. Once this returns, the batch counts as
+     * delivered; if it throws, its events are delivered again one at a time, so a sink
+     * must tolerate seeing an event twice. An event it keeps rejecting on its own is
+     * set aside after app.outbox.relay.max-attempts tries.
+     */
+    void deliver(List<OutboxMessage> messages);
+}
\ No newline at end of file
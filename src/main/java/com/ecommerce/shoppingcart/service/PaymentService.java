@@ -1,6 +1,8 @@
 package com.ecommerce.shoppingcart.service;
 
+import com.ecommerce.shoppingcart.dto.OrderEvent;
 import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.OutboxEvent;
 import com.ecommerce.shoppingcart.model.Payment;
 import com.ecommerce.shoppingcart.repository.PaymentRepository;
 import org.springframework.stereotype.Service;
@@ -17,10 +19,12 @@ import java.util.UUID;
 public class PaymentService {
     
     private final PaymentRepository paymentRepository;
+    private final OutboxService outboxService;
     private final Random random = new Random();
     
-    public PaymentService(PaymentRepository paymentRepository) {
+    public PaymentService(PaymentRepository paymentRepository, OutboxService outboxService) {
         this.paymentRepository = paymentRepository;
+        this.outboxService = outboxService;
     }
     
     /**
@@ -54,7 +58,15 @@ public class PaymentService {
                 throw new IllegalArgumentException("Unsupported payment method: " + paymentMethod);
         }
         
-        return paymentRepository.save(payment);
+        Payment saved = paymentRepository.save(payment);
+        if (saved.getPaymentStatus() == Payment.PaymentStatus.COMPLETED) {
+            record(saved, new OrderEvent.PaymentCompleted(order.getId(), saved.getId(), saved.getAmount(),
+                    saved.getTransactionId()));
+        } else {
+            record(saved, new OrderEvent.PaymentFailed(order.getId(), saved.getId(), saved.getAmount(),
+                    saved.getGatewayResponse()));
+        }
+        return saved;
     }
     
     /**
@@ -200,7 +212,13 @@ public class PaymentService {
         payment.setPaymentStatus(Payment.PaymentStatus.REFUNDED);
         payment.setGatewayResponse("Payment refunded successfully");
         
-        return paymentRepository.save(payment);
+        Payment saved = paymentRepository.save(payment);
+        record(saved, new OrderEvent.PaymentRefunded(saved.getOrder().getId(), saved.getId(), saved.getAmount()));
+        return saved;
+    }
+    
+    private void record(Payment payment, OrderEvent event) {
+        outboxService.record(OutboxEvent.AggregateType.PAYMENT, payment.getId(), event);
     }
     
     // Utility methods
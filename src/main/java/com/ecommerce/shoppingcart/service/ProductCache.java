@@ -0,0 +1,154 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.ProductSnapshot;
+import com.ecommerce.shoppingcart.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of product snapshots keyed by product id.
+ *
+ * Entries are evicted least-recently-used once the cache is full and expire after
+ * a fixed time to live. Writes must call {@link #invalidate(Long)}; a load that
+ * races with an invalidation is not stored, so a stale row read just before a
+ * write can never be cached after it.
+ */
+@Component
+public class ProductCache {
+    
+    private final int maxSize;
+    private final long ttlNanos;
+    
+    private final LinkedHashMap<Long, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    
+    // bumped on every invalidation so in-flight loads can tell they may be stale
+    private final AtomicLong invalidations = new AtomicLong();
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    public ProductCache(@Value("${app.catalog.product-cache.max-size:10000}") int maxSize,
+                        @Value("${app.catalog.product-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+    }
+    
+    /**
+     * Return the cached snapshot, loading and caching it on a miss
+     */
+    public Optional<ProductSnapshot> get(Long id, Function<Long, Optional<Product>> loader) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            CacheEntry entry = entries.get(id);
+            if (entry != null) {
+                if (now - entry.loadedAt < ttlNanos) {
+                    hits.incrementAndGet();
+                    return Optional.of(entry.snapshot);
+                }
+                entries.remove(id);
+                evictions.incrementAndGet();
+            }
+        }
+        
+        misses.incrementAndGet();
+        long invalidationsBeforeLoad = invalidations.get();
+        Optional<ProductSnapshot> loaded = loader.apply(id).map(ProductSnapshot::from);
+        loaded.ifPresent(snapshot -> put(snapshot, invalidationsBeforeLoad));
+        return loaded;
+    }
+    
+    /**
+     * Return the cached snapshots of the given ids, loading all misses with one call
+     * to the loader. Ids that do not exist are missing from the result.
+     */
+    public Map<Long, ProductSnapshot> getAll(Collection<Long> ids, Function<Collection<Long>, List<Product>> loader) {
+        long now = System.nanoTime();
+        Map<Long, ProductSnapshot> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        synchronized (entries) {
+            for (Long id : ids) {
+                CacheEntry entry = entries.get(id);
+                if (entry != null && now - entry.loadedAt < ttlNanos) {
+                    hits.incrementAndGet();
+                    found.put(id, entry.snapshot);
+                } else {
+                    if (entry != null) {
+                        entries.remove(id);
+                        evictions.incrementAndGet();
+                    }
+                    misses.incrementAndGet();
+                    missing.add(id);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            long invalidationsBeforeLoad = invalidations.get();
+            for (Product product : loader.apply(missing)) {
+                ProductSnapshot snapshot = ProductSnapshot.from(product);
+                found.put(snapshot.id(), snapshot);
+                put(snapshot, invalidationsBeforeLoad);
+            }
+        }
+        return found;
+    }
+    
+    public void invalidate(Long id) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(id);
+        }
+    }
+    
+    public void clear() {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.clear();
+        }
+    }
+    
+    public Stats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(size, maxSize, hits.get(), misses.get(), evictions.get());
+    }
+    
+    private void put(ProductSnapshot snapshot, long invalidationsBeforeLoad) {
+        synchronized (entries) {
+            if (invalidations.get() != invalidationsBeforeLoad) {
+                return;
+            }
+            entries.put(snapshot.id(), new CacheEntry(snapshot, System.nanoTime()));
+            Iterator<Map.Entry<Long, CacheEntry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+    
+    private record CacheEntry(ProductSnapshot snapshot, long loadedAt) {
+    }
+    
+    public record Stats(int size, int maxSize, long hits, long misses, long evictions) {
+        
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.CatalogExportFilter;
+import com.ecommerce.shoppingcart.dto.ProductSnapshot;
+import com.ecommerce.shoppingcart.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+@Service
+public class ProductExportService {
+    
+    private final ProductRepository productRepository;
+    private final ObjectWriter productWriter;
+    private final int flushEvery;
+    
+    public ProductExportService(ProductRepository productRepository, ObjectMapper objectMapper,
+                                @Value("${app.catalog.export.flush-every:500}") int flushEvery) {
+        this.productRepository = productRepository;
+        this.productWriter = objectMapper.writerFor(ProductSnapshot.class);
+        this.flushEvery = flushEvery;
+    }
+    
+    /**
+     * Write the matching products as newline-delimited JSON, one product per line.
+     * Rows are written as they are read and the stream is flushed every few hundred
+     * lines, so memory use does not depend on the size of the export.
+     *
+     * @return the number of products written
+     */
+    public long exportCatalog(CatalogExportFilter filter, OutputStream out) throws IOException {
+        long[] written = {0};
+        try {
+            productRepository.scrollCatalog(filter, product -> {
+                try {
+                    out.write(productWriter.writeValueAsBytes(ProductSnapshot.from(product)));
+                    out.write('\n');
+                    if (++written[0] % flushEvery == 0) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return written[0];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.FacetFilter;
+import com.ecommerce.shoppingcart.dto.PriceBucket;
+import com.ecommerce.shoppingcart.dto.ProductFacets;
+import com.ecommerce.shoppingcart.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap index over the category, active flag, stock state and price bucket of
+ * every product.
+ *
+ * Each product gets a dense ordinal and each facet value a bitmap of ordinals, so
+ * a combined filter is a handful of word-wise ANDs and a facet count is the
+ * cardinality of one more AND. Ordinals of removed products are reused, which
+ * keeps the bitmaps as small as the catalog.
+ */
+@Component
+public class ProductFacetIndex implements ProductIndex {
+    
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] productIds = new long[1024];
+    // stock on hand minus held units per ordinal, kept so stock deltas can flip inStock
+    private int[] available = new int[1024];
+    
+    private final BitSet live = new BitSet();
+    private final BitSet active = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final Map<Product.Category, BitSet> categories = new EnumMap<>(Product.Category.class);
+    private final Map<PriceBucket, BitSet> priceBuckets = new EnumMap<>(PriceBucket.class);
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    public ProductFacetIndex() {
+        for (Product.Category category : Product.Category.values()) {
+            categories.put(category, new BitSet());
+        }
+        for (PriceBucket bucket : PriceBucket.values()) {
+            priceBuckets.put(bucket, new BitSet());
+        }
+    }
+    
+    @Override
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.get(product.getId());
+            int ordinal;
+            if (existing != null) {
+                ordinal = existing;
+                clearBits(ordinal);
+            } else {
+                ordinal = live.nextClearBit(0);
+                if (ordinal >= productIds.length) {
+                    productIds = Arrays.copyOf(productIds, productIds.length * 2);
+                    available = Arrays.copyOf(available, productIds.length);
+                }
+                productIds[ordinal] = product.getId();
+                ordinals.put(product.getId(), ordinal);
+            }
+            
+            live.set(ordinal);
+            if (product.isActive()) {
+                active.set(ordinal);
+            }
+            int stock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+            available[ordinal] = stock - product.getReservedQuantity();
+            if (available[ordinal] > 0) {
+                inStock.set(ordinal);
+            }
+            if (product.getCategory() != null) {
+                categories.get(product.getCategory()).set(ordinal);
+            }
+            PriceBucket bucket = PriceBucket.of(product.getPrice());
+            if (bucket != null) {
+                priceBuckets.get(bucket).set(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void adjustStock(Long productId, int stockDelta, int reservedDelta) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(productId);
+            if (ordinal != null) {
+                available[ordinal] += stockDelta - reservedDelta;
+                inStock.set(ordinal, available[ordinal] > 0);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(productId);
+            if (ordinal != null) {
+                clearBits(ordinal);
+                live.clear(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            live.clear();
+            active.clear();
+            inStock.clear();
+            categories.values().forEach(BitSet::clear);
+            priceBuckets.values().forEach(BitSet::clear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Count the products matching the filter and, for every facet, the products each
+     * of its values would match with the other selections kept
+     */
+    public ProductFacets facets(FacetFilter filter) {
+        lock.readLock().lock();
+        try {
+            BitSet base = base(filter);
+            BitSet categoryMask = filter.category() != null ? categories.get(filter.category()) : null;
+            BitSet priceMask = filter.priceBucket() != null ? priceBuckets.get(filter.priceBucket()) : null;
+            BitSet stockMask = stockMask(filter.inStock());
+            
+            Map<Product.Category, Long> categoryCounts = new EnumMap<>(Product.Category.class);
+            BitSet withoutCategory = and(base, priceMask, stockMask);
+            categories.forEach((category, bits) -> categoryCounts.put(category, countAnd(withoutCategory, bits)));
+            
+            Map<PriceBucket, Long> priceCounts = new EnumMap<>(PriceBucket.class);
+            BitSet withoutPrice = and(base, categoryMask, stockMask);
+            priceBuckets.forEach((bucket, bits) -> priceCounts.put(bucket, countAnd(withoutPrice, bits)));
+            
+            BitSet withoutStock = and(base, categoryMask, priceMask);
+            long inStockCount = countAnd(withoutStock, inStock);
+            long total = stockMask == null ? withoutStock.cardinality()
+                    : Boolean.TRUE.equals(filter.inStock()) ? inStockCount : withoutStock.cardinality() - inStockCount;
+            
+            return new ProductFacets(total, categoryCounts, priceCounts,
+                    inStockCount, withoutStock.cardinality() - inStockCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Ids of the products matching the filter, in no particular order
+     */
+    public List<Long> matchingIds(FacetFilter filter) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = matches(filter);
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<Long> ids = new ArrayList<>(matches.cardinality());
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                ids.add(productIds[ordinal]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Whether the indexed product has units left to sell
+     */
+    public boolean isInStock(Long productId) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinals.get(productId);
+            return ordinal != null && inStock.get(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Number of products matching the filter
+     */
+    public int count(FacetFilter filter) {
+        lock.readLock().lock();
+        try {
+            return matches(filter).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private BitSet matches(FacetFilter filter) {
+        return and(base(filter),
+                filter.category() != null ? categories.get(filter.category()) : null,
+                filter.priceBucket() != null ? priceBuckets.get(filter.priceBucket()) : null,
+                stockMask(filter.inStock()));
+    }
+    
+    private BitSet base(FacetFilter filter) {
+        return filter.includeInactive() ? live : active;
+    }
+    
+    // An out-of-stock filter is the complement of the in-stock bitmap within the live set
+    private BitSet stockMask(Boolean wantInStock) {
+        if (wantInStock == null) {
+            return null;
+        }
+        if (wantInStock) {
+            return inStock;
+        }
+        BitSet outOfStock = (BitSet) live.clone();
+        outOfStock.andNot(inStock);
+        return outOfStock;
+    }
+    
+    // Null masks stand for an unfiltered facet
+    private static BitSet and(BitSet base, BitSet... masks) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet mask : masks) {
+            if (mask != null) {
+                result.and(mask);
+            }
+        }
+        return result;
+    }
+    
+    private static long countAnd(BitSet left, BitSet right) {
+        BitSet result = (BitSet) left.clone();
+        result.and(right);
+        return result.cardinality();
+    }
+    
+    private void clearBits(int ordinal) {
+        active.clear(ordinal);
+        inStock.clear(ordinal);
+        categories.values().forEach(bits -> bits.clear(ordinal));
+        priceBuckets.values().forEach(bits -> bits.clear(ordinal));
+    }
+}
\ No newline at end of file
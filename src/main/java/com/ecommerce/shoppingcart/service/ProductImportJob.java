@@ -0,0 +1,134 @@
+package com.ecommerce.shoppingcart.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one bulk product import. Counters are updated by the import thread
+ * and read by status requests; only the first few row errors are kept.
+ */
+public class ProductImportJob {
+    
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+    
+    public record RowError(long row, String message) {
+    }
+    
+    private final String id;
+    private final String fileName;
+    private final long totalBytes;
+    private final int maxReportedErrors;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    
+    private volatile State state = State.QUEUED;
+    private volatile LocalDateTime finishedAt;
+    private volatile String failureMessage;
+    
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsProcessed = new AtomicLong();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<RowError> errors = new ArrayList<>();
+    
+    public ProductImportJob(String id, String fileName, long totalBytes, int maxReportedErrors) {
+        this.id = id;
+        this.fileName = fileName;
+        this.totalBytes = totalBytes;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+    
+    void start() {
+        state = State.RUNNING;
+    }
+    
+    void complete() {
+        finishedAt = LocalDateTime.now();
+        state = State.COMPLETED;
+    }
+    
+    void fail(String message) {
+        failureMessage = message;
+        finishedAt = LocalDateTime.now();
+        state = State.FAILED;
+    }
+    
+    void addBytesRead(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+    
+    void recordBatch(int insertedRows, int updatedRows) {
+        inserted.addAndGet(insertedRows);
+        updated.addAndGet(updatedRows);
+        rowsProcessed.addAndGet(insertedRows + updatedRows);
+    }
+    
+    void recordError(long row, String message) {
+        failed.incrementAndGet();
+        rowsProcessed.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new RowError(row, message));
+            }
+        }
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public String getFailureMessage() {
+        return failureMessage;
+    }
+    
+    /**
+     * Share of the uploaded file read so far, from 0 to 100
+     */
+    public int getPercentComplete() {
+        if (state == State.COMPLETED) {
+            return 100;
+        }
+        return totalBytes <= 0 ? 0 : (int) Math.min(99, bytesRead.get() * 100 / totalBytes);
+    }
+    
+    public long getRowsProcessed() {
+        return rowsProcessed.get();
+    }
+    
+    public long getInserted() {
+        return inserted.get();
+    }
+    
+    public long getUpdated() {
+        return updated.get();
+    }
+    
+    public long getFailed() {
+        return failed.get();
+    }
+    
+    public List<RowError> getErrors() {
+        synchronized (errors) {
+            return Collections.unmodifiableList(new ArrayList<>(errors));
+        }
+    }
+}
\ No newline at end of file
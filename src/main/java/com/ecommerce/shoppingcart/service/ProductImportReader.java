@@ -0,0 +1,169 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming readers for the bulk import formats. Each record is handed to the
+ * consumer as soon as it is parsed, with field names normalized to lower case
+ * letters and digits ("stock_quantity" becomes "stockquantity"), so an upload of
+ * any size is read in constant memory.
+ */
+final class ProductImportReader {
+    
+    enum Format {
+        CSV, NDJSON;
+        
+        /**
+         * Use the requested format if given, otherwise guess it from the file extension
+         */
+        static Format resolve(String requested, String fileName) {
+            if (requested != null && !requested.isBlank()) {
+                try {
+                    return valueOf(requested.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unsupported import format: " + requested);
+                }
+            }
+            String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Cannot tell the import format from the file name; pass format=csv or format=ndjson");
+        }
+    }
+    
+    interface RowConsumer {
+        
+        void accept(long row, Map<String, String> fields);
+        
+        void reject(long row, String message);
+    }
+    
+    private ProductImportReader() {
+    }
+    
+    static void read(Format format, BufferedReader in, ObjectMapper objectMapper, RowConsumer consumer)
+            throws IOException {
+        if (format == Format.CSV) {
+            readCsv(in, consumer);
+        } else {
+            readNdjson(in, objectMapper, consumer);
+        }
+    }
+    
+    static String normalizeField(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+    
+    // The first record is the header; rows are numbered from the first data record
+    private static void readCsv(BufferedReader in, RowConsumer consumer) throws IOException {
+        List<String> header = null;
+        long row = 0;
+        List<String> record;
+        while ((record = nextCsvRecord(in)) != null) {
+            if (header == null) {
+                header = new ArrayList<>(record.size());
+                for (String column : record) {
+                    header.add(normalizeField(column));
+                }
+                continue;
+            }
+            row++;
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            if (record.size() != header.size()) {
+                consumer.reject(row, "Expected " + header.size() + " columns but found " + record.size());
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                fields.put(header.get(i), record.get(i));
+            }
+            consumer.accept(row, fields);
+        }
+    }
+    
+    // RFC 4180 record: quoted fields may contain commas, doubled quotes and line breaks
+    private static List<String> nextCsvRecord(BufferedReader in) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean empty = true;
+        int c;
+        while ((c = in.read()) != -1) {
+            empty = false;
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            in.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (empty) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    private static void readNdjson(BufferedReader in, ObjectMapper objectMapper, RowConsumer consumer)
+            throws IOException {
+        long row = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            row++;
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                consumer.reject(row, "Malformed JSON");
+                continue;
+            }
+            if (!node.isObject()) {
+                consumer.reject(row, "Expected a JSON object");
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (Map.Entry<String, JsonNode> entry : node.properties()) {
+                fields.put(normalizeField(entry.getKey()), entry.getValue().isNull() ? null : entry.getValue().asText());
+            }
+            consumer.accept(row, fields);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,347 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.ProductSnapshot;
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import from CSV or NDJSON uploads.
+ *
+ * The upload is streamed in the background and rows are upserted in batches:
+ * a row with an id updates that product, a row without one inserts a new product.
+ * Each batch is one transaction whose inserts Hibernate sends as JDBC batches.
+ * Invalid rows are reported and skipped without failing the rest of their batch.
+ */
+@Service
+public class ProductImportService {
+    
+    private static final long FINISHED_JOB_RETENTION_HOURS = 24;
+    
+    private final ProductService productService;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxReportedErrors;
+    
+    private final Map<String, ProductImportJob> jobs = new ConcurrentHashMap<>();
+    
+    // imports run one at a time so a second upload cannot double the write load
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public ProductImportService(ProductService productService, ProductRepository productRepository,
+                                PlatformTransactionManager transactionManager, Validator validator,
+                                ObjectMapper objectMapper,
+                                @Value("${app.catalog.import.batch-size:500}") int batchSize,
+                                @Value("${app.catalog.import.max-reported-errors:100}") int maxReportedErrors) {
+        this.productService = productService;
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+    
+    /**
+     * Store the upload and queue it for import
+     *
+     * @param format "csv" or "ndjson"; guessed from the file name when null
+     */
+    public ProductImportJob startImport(MultipartFile file, String format) throws IOException {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("The uploaded file is empty");
+        }
+        ProductImportReader.Format resolved = ProductImportReader.Format.resolve(format, file.getOriginalFilename());
+        
+        // the multipart file is deleted when the request ends, so the job reads its own copy
+        Path upload = Files.createTempFile("product-import-", "." + resolved.name().toLowerCase(Locale.ROOT));
+        file.transferTo(upload);
+        
+        pruneFinishedJobs();
+        ProductImportJob job = new ProductImportJob(UUID.randomUUID().toString(), file.getOriginalFilename(),
+                Files.size(upload), maxReportedErrors);
+        jobs.put(job.getId(), job);
+        executor.submit(() -> run(job, resolved, upload));
+        return job;
+    }
+    
+    public Optional<ProductImportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private void run(ProductImportJob job, ProductImportReader.Format format, Path upload) {
+        job.start();
+        try (InputStream in = new CountingInputStream(Files.newInputStream(upload), job);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<ImportRow> batch = new ArrayList<>(batchSize);
+            ProductImportReader.read(format, reader, objectMapper, new ProductImportReader.RowConsumer() {
+                @Override
+                public void accept(long row, Map<String, String> fields) {
+                    batch.add(new ImportRow(row, fields));
+                    if (batch.size() >= batchSize) {
+                        importBatch(job, batch);
+                        batch.clear();
+                    }
+                }
+                
+                @Override
+                public void reject(long row, String message) {
+                    job.recordError(row, message);
+                }
+            });
+            if (!batch.isEmpty()) {
+                importBatch(job, batch);
+            }
+            job.complete();
+        } catch (Exception e) {
+            job.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException ignored) {
+                // the temp directory is cleaned up by the OS eventually
+            }
+        }
+    }
+    
+    private void importBatch(ProductImportJob job, List<ImportRow> rows) {
+        List<ImportRow> accepted = new ArrayList<>(rows.size());
+        try {
+            int[] counts = transactionTemplate.execute(status -> {
+                Set<Long> ids = new HashSet<>();
+                for (ImportRow row : rows) {
+                    try {
+                        Long id = parseId(row.fields().get("id"));
+                        if (id != null) {
+                            ids.add(id);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        // reported when the row itself is resolved
+                    }
+                }
+                Map<Long, Product> existing = new HashMap<>();
+                if (!ids.isEmpty()) {
+                    productRepository.findAllById(ids).forEach(product -> existing.put(product.getId(), product));
+                }
+                
+                List<Product> products = new ArrayList<>(rows.size());
+                int inserted = 0;
+                for (ImportRow row : rows) {
+                    try {
+                        Product product = resolve(row, existing);
+                        boolean isNew = product.getId() == null;
+                        // changes go to a detached copy first so an invalid row never dirties a managed entity
+                        Product candidate = isNew ? product : ProductSnapshot.from(product).toProduct();
+                        apply(row.fields(), candidate, isNew);
+                        validate(candidate);
+                        if (!isNew) {
+                            copyFields(candidate, product);
+                        }
+                        products.add(product);
+                        accepted.add(row);
+                        if (isNew) {
+                            inserted++;
+                        }
+                    } catch (IllegalArgumentException e) {
+                        job.recordError(row.row(), e.getMessage());
+                    }
+                }
+                productService.saveProducts(products);
+                return new int[] {inserted, products.size() - inserted};
+            });
+            job.recordBatch(counts[0], counts[1]);
+        } catch (RuntimeException e) {
+            // the batch was rolled back, so rows that passed validation were not written either
+            String message = "Batch rolled back: " + e.getMessage();
+            for (ImportRow row : accepted) {
+                job.recordError(row.row(), message);
+            }
+        }
+    }
+    
+    private Product resolve(ImportRow row, Map<Long, Product> existing) {
+        Long id = parseId(row.fields().get("id"));
+        if (id == null) {
+            return new Product();
+        }
+        Product product = existing.get(id);
+        if (product == null) {
+            throw new IllegalArgumentException("No product with id " + id);
+        }
+        return product;
+    }
+    
+    // Blank fields keep the current value of an updated product
+    private void apply(Map<String, String> fields, Product product, boolean isNew) {
+        String name = field(fields, "name");
+        if (name != null) {
+            product.setName(name);
+        }
+        String description = field(fields, "description");
+        if (description != null) {
+            product.setDescription(description);
+        }
+        String price = field(fields, "price");
+        if (price != null) {
+            try {
+                product.setPrice(new BigDecimal(price));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid price: " + price);
+            }
+        }
+        String stock = field(fields, "stockquantity") != null ? field(fields, "stockquantity") : field(fields, "stock");
+        if (stock != null) {
+            try {
+                product.setStockQuantity(Integer.valueOf(stock));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid stock quantity: " + stock);
+            }
+        }
+        String category = field(fields, "category");
+        if (category != null) {
+            try {
+                product.setCategory(Product.Category.valueOf(category.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown category: " + category);
+            }
+        } else if (isNew) {
+            throw new IllegalArgumentException("Category is required");
+        }
+        String imageUrl = field(fields, "imageurl");
+        if (imageUrl != null) {
+            product.setImageUrl(imageUrl);
+        }
+        String active = field(fields, "active");
+        if (active != null) {
+            product.setActive(parseBoolean(active));
+        }
+    }
+    
+    private static void copyFields(Product source, Product target) {
+        target.setName(source.getName());
+        target.setDescription(source.getDescription());
+        target.setPrice(source.getPrice());
+        target.setStockQuantity(source.getStockQuantity());
+        target.setCategory(source.getCategory());
+        target.setImageUrl(source.getImageUrl());
+        target.setActive(source.isActive());
+    }
+    
+    private void validate(Product product) {
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        if (product.getStockQuantity() < 0) {
+            throw new IllegalArgumentException("Stock quantity cannot be negative");
+        }
+    }
+    
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(FINISHED_JOB_RETENTION_HOURS);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+    
+    private static String field(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+    
+    private static Long parseId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid id: " + value);
+        }
+    }
+    
+    private static boolean parseBoolean(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "1" -> true;
+            case "false", "no", "0" -> false;
+            default -> throw new IllegalArgumentException("Invalid active flag: " + value);
+        };
+    }
+    
+    private record ImportRow(long row, Map<String, String> fields) {
+    }
+    
+    // Reports bytes read from the upload so the job can show how far it has got
+    private static final class CountingInputStream extends FilterInputStream {
+        
+        private final ProductImportJob job;
+        
+        private CountingInputStream(InputStream in, ProductImportJob job) {
+            super(in);
+            this.job = job;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                job.addBytesRead(1);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                job.addBytesRead(n);
+            }
+            return n;
+        }
+    }
+}
\ No newline at end of file
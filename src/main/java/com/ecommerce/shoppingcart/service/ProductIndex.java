@@ -0,0 +1,35 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Product;
+
+/**
+ * In-memory view over the product catalog that ProductService keeps current
+ * on every product write. Implementations must be thread-safe.
+ */
+public interface ProductIndex {
+    
+    /**
+     * Add or replace a product. Inactive products should be dropped from views
+     * that only serve the active catalog.
+     */
+    void index(Product product);
+    
+    /**
+     * Move an indexed product's stock on hand and held units by the given deltas,
+     * without reloading it. Stock holds and sales change nothing else, so views that
+     * do not depend on stock can ignore this; the next index call replaces the
+     * adjusted state with the row as stored.
+     */
+    default void adjustStock(Long productId, int stockDelta, int reservedDelta) {
+    }
+    
+    /**
+     * Remove a product from the index entirely
+     */
+    void remove(Long productId);
+    
+    /**
+     * Drop all entries before a full rebuild
+     */
+    void clear();
+}
\ No newline at end of file
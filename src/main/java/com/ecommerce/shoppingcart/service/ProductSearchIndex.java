@@ -0,0 +1,378 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tokenizing inverted index over the name and description of active products.
+ *
+ * Replaces the LIKE '%keyword%' scans in ProductRepository: a query is split into
+ * terms, every term is looked up in a sorted term dictionary (exact match plus the
+ * dictionary terms it is a prefix of) and matching products are ranked with a simple
+ * tf-idf score where name hits weigh more than description hits. Unlike LIKE, a term
+ * only matches at the start of a word: "phone" finds "phones" but not "headphones".
+ *
+ * A prefix expands to at most MAX_PREFIX_EXPANSIONS dictionary terms, the shortest
+ * first and, among equally long ones, the most common; on a large vocabulary a one-
+ * or two-letter prefix would otherwise union the postings of thousands of terms.
+ *
+ * Terms are ANDed by default; separating terms with "OR" matches any of them.
+ *
+ * Fuzzy mode also matches terms within a small edit distance. Candidates come
+ * from a trigram index over the term dictionary rather than over products, so
+ * its size grows with the vocabulary and not with the catalog.
+ */
+@Component
+public class ProductSearchIndex implements ProductIndex {
+    
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MAX_FUZZY_CANDIDATES = 32;
+    private static final double FUZZY_MATCH_FACTOR = 0.4;
+    
+    // term -> (productId -> weighted term frequency)
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    
+    // productId -> (term -> weighted term frequency), needed to unindex on update
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    
+    // trigram of a padded term -> terms in the dictionary containing it
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    @Override
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        if (!product.isActive()) {
+            remove(product.getId());
+            return;
+        }
+        
+        Map<String, Integer> terms = new HashMap<>();
+        for (String token : tokenize(product.getName())) {
+            terms.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(product.getDescription())) {
+            terms.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        
+        lock.writeLock().lock();
+        try {
+            unindex(product.getId());
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), this::newTerm)
+                        .put(product.getId(), term.getValue());
+            }
+            documents.put(product.getId(), terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            unindex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            trigrams.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Search the index and return matching product ids, best match first
+     */
+    public List<Long> search(String query) {
+        return search(query, false);
+    }
+    
+    /**
+     * Search the index; in fuzzy mode every term also matches dictionary terms within
+     * one edit (two for terms of eight or more characters), at a lower score
+     */
+    public List<Long> search(String query, boolean fuzzy) {
+        List<List<String>> clauses = parseQuery(query);
+        if (clauses.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            // OR across clauses, AND across the terms inside a clause
+            for (List<String> clause : clauses) {
+                scoreClause(clause, fuzzy, scores);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        
+        List<Long> ids = new ArrayList<>(ranked.size());
+        for (Map.Entry<Long, Double> entry : ranked) {
+            ids.add(entry.getKey());
+        }
+        return ids;
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void scoreClause(List<String> terms, boolean fuzzy, Map<Long, Double> scores) {
+        Map<Long, Double> clauseScores = null;
+        for (String term : terms) {
+            Map<Long, Double> termScores = scoreTerm(term, fuzzy);
+            if (clauseScores == null) {
+                clauseScores = termScores;
+            } else {
+                clauseScores.keySet().retainAll(termScores.keySet());
+                clauseScores.replaceAll((id, score) -> score + termScores.get(id));
+            }
+            if (clauseScores.isEmpty()) {
+                return;
+            }
+        }
+        if (clauseScores != null) {
+            clauseScores.forEach((id, score) -> scores.merge(id, score, Double::sum));
+        }
+    }
+    
+    private Map<Long, Double> scoreTerm(String term, boolean fuzzy) {
+        Map<Long, Double> termScores = new HashMap<>();
+        int totalDocuments = Math.max(1, documents.size());
+        
+        Map<Long, Integer> exact = postings.get(term);
+        if (exact != null) {
+            accumulate(termScores, exact, totalDocuments, 1.0);
+        }
+        
+        if (term.length() >= MIN_PREFIX_LENGTH) {
+            for (Map<Long, Integer> expansion : prefixExpansions(term)) {
+                accumulate(termScores, expansion, totalDocuments, PREFIX_MATCH_FACTOR);
+            }
+        }
+        
+        if (fuzzy && term.length() >= MIN_FUZZY_LENGTH) {
+            int maxEdits = term.length() >= 8 ? 2 : 1;
+            for (String candidate : fuzzyCandidates(term, maxEdits)) {
+                int distance = editDistance(term, candidate, maxEdits);
+                if (distance > 0 && distance <= maxEdits) {
+                    double factor = FUZZY_MATCH_FACTOR * (maxEdits + 1 - distance) / maxEdits;
+                    accumulate(termScores, postings.get(candidate), totalDocuments, factor);
+                }
+            }
+        }
+        return termScores;
+    }
+    
+    // Postings of the dictionary terms the prefix expands to. Only the keys are walked;
+    // a bounded heap keeps the closest completions, so no more than
+    // MAX_PREFIX_EXPANSIONS postings are ever merged.
+    private List<Map<Long, Integer>> prefixExpansions(String prefix) {
+        SortedMap<String, Map<Long, Integer>> expansions = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        Comparator<Map.Entry<String, Map<Long, Integer>>> closest = Comparator
+                .<Map.Entry<String, Map<Long, Integer>>>comparingInt(entry -> entry.getKey().length())
+                .thenComparing(entry -> entry.getValue().size(), Comparator.reverseOrder())
+                .thenComparing(Map.Entry::getKey);
+        PriorityQueue<Map.Entry<String, Map<Long, Integer>>> kept = new PriorityQueue<>(closest.reversed());
+        for (Map.Entry<String, Map<Long, Integer>> expansion : expansions.entrySet()) {
+            if (expansion.getKey().equals(prefix)) {
+                continue;
+            }
+            kept.add(expansion);
+            if (kept.size() > MAX_PREFIX_EXPANSIONS) {
+                kept.poll();
+            }
+        }
+        List<Map<Long, Integer>> result = new ArrayList<>(kept.size());
+        for (Map.Entry<String, Map<Long, Integer>> expansion : kept) {
+            result.add(expansion.getValue());
+        }
+        return result;
+    }
+    
+    // Dictionary terms sharing the most trigrams with the query term. Every edit
+    // touches at most three trigrams, which bounds how many a real match must share.
+    private List<String> fuzzyCandidates(String term, int maxEdits) {
+        Set<String> grams = trigramsOf(term);
+        int minShared = Math.max(1, grams.size() - 3 * maxEdits);
+        
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            Set<String> terms = trigrams.get(gram);
+            if (terms != null) {
+                for (String candidate : terms) {
+                    if (Math.abs(candidate.length() - term.length()) <= maxEdits) {
+                        shared.merge(candidate, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            if (entry.getValue() >= minShared) {
+                ranked.add(entry);
+            }
+        }
+        ranked.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        
+        List<String> candidates = new ArrayList<>(Math.min(ranked.size(), MAX_FUZZY_CANDIDATES));
+        for (int i = 0; i < ranked.size() && i < MAX_FUZZY_CANDIDATES; i++) {
+            candidates.add(ranked.get(i).getKey());
+        }
+        return candidates;
+    }
+    
+    private Map<Long, Integer> newTerm(String term) {
+        for (String gram : trigramsOf(term)) {
+            trigrams.computeIfAbsent(gram, k -> new HashSet<>()).add(term);
+        }
+        return new HashMap<>();
+    }
+    
+    private void dropTerm(String term) {
+        postings.remove(term);
+        for (String gram : trigramsOf(term)) {
+            Set<String> terms = trigrams.get(gram);
+            if (terms != null) {
+                terms.remove(term);
+                if (terms.isEmpty()) {
+                    trigrams.remove(gram);
+                }
+            }
+        }
+    }
+    
+    private void accumulate(Map<Long, Double> termScores, Map<Long, Integer> posting,
+                            int totalDocuments, double factor) {
+        double idf = Math.log(1.0 + (double) totalDocuments / posting.size());
+        for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+            double score = entry.getValue() * idf * factor;
+            // a product matching several expansions of one term keeps its best match
+            termScores.merge(entry.getKey(), score, Math::max);
+        }
+    }
+    
+    private void unindex(Long productId) {
+        Map<String, Integer> terms = documents.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    dropTerm(term);
+                }
+            }
+        }
+    }
+    
+    private static List<List<String>> parseQuery(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        if (query == null) {
+            return clauses;
+        }
+        for (String clause : query.split("\\s+OR\\s+")) {
+            List<String> terms = tokenize(clause);
+            if (!terms.isEmpty()) {
+                clauses.add(terms);
+            }
+        }
+        return clauses;
+    }
+    
+    // Trigrams of the term padded with boundary markers, so "lamp" gives ^la lam amp mp$
+    private static Set<String> trigramsOf(String term) {
+        String padded = "^" + term + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+    
+    // Levenshtein distance that gives up with maxEdits + 1 once every cell of a row
+    // exceeds the bound
+    static int editDistance(String a, String b, int maxEdits) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+    
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
\ No newline at end of file
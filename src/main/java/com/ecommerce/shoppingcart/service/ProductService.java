@@ -1,21 +1,85 @@
 package com.ecommerce.shoppingcart.service;
 
+import com.ecommerce.shoppingcart.dto.CursorPage;
+import com.ecommerce.shoppingcart.dto.FacetFilter;
+import com.ecommerce.shoppingcart.dto.ProductCursor;
+import com.ecommerce.shoppingcart.dto.ProductFacets;
+import com.ecommerce.shoppingcart.dto.ProductSnapshot;
+import com.ecommerce.shoppingcart.dto.ProductSuggestion;
 import com.ecommerce.shoppingcart.model.Product;
 import com.ecommerce.shoppingcart.repository.ProductRepository;
+import com.ecommerce.shoppingcart.repository.ProductSortKey;
+import jakarta.annotation.PostConstruct;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ProductService {
     
+    private static final int INDEX_LOAD_CHUNK = 1000;
+    // keeps IN lists far below the bind parameter limits of the databases
+    private static final int ID_LOAD_CHUNK = 1000;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final int MIN_EXACT_SEARCH_HITS = 3;
+    
     private final ProductRepository productRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductSortedViews productSortedViews;
+    private final List<ProductIndex> productIndexes;
+    private final ProductCache productCache;
+    private final CatalogVersion catalogVersion;
+    private final HotStockCounters hotStockCounters;
     
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductSearchIndex productSearchIndex,
+                          ProductFacetIndex productFacetIndex, ProductSuggestIndex productSuggestIndex,
+                          ProductSortedViews productSortedViews, List<ProductIndex> productIndexes,
+                          ProductCache productCache, CatalogVersion catalogVersion,
+                          HotStockCounters hotStockCounters) {
         this.productRepository = productRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.productSuggestIndex = productSuggestIndex;
+        this.productSortedViews = productSortedViews;
+        this.productIndexes = productIndexes;
+        this.productCache = productCache;
+        this.catalogVersion = catalogVersion;
+        this.hotStockCounters = hotStockCounters;
+        // a hot product's holds and sales reach its row, and so the listings, only when flushed
+        hotStockCounters.setFlushListener(this::onStockChanged);
+    }
+    
+    /**
+     * Load the whole catalog into the in-memory indexes, one id-ordered chunk at a time
+     */
+    @PostConstruct
+    public void rebuildIndexes() {
+        productIndexes.forEach(ProductIndex::clear);
+        long lastId = 0L;
+        List<Product> chunk;
+        do {
+            chunk = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(INDEX_LOAD_CHUNK));
+            for (Product product : chunk) {
+                productIndexes.forEach(index -> index.index(product));
+                lastId = product.getId();
+            }
+        } while (chunk.size() == INDEX_LOAD_CHUNK);
     }
     
     public List<Product> getAllActiveProducts() {
@@ -34,24 +98,272 @@ public class ProductService {
         return productRepository.findByActiveTrueAndCategory(category, pageable);
     }
     
+    /**
+     * Keyset-paginated catalog listing served from the pre-sorted in-memory views. Each
+     * page seeks past the (sort key, id) of the cursor row with a binary search, so deep
+     * pages cost the same as the first one and no query is run.
+     */
+    public CursorPage<Product> getCatalogPage(Product.Category category, boolean includeInactive,
+                                              ProductSortKey sortKey, boolean descending,
+                                              String cursorToken, int size, boolean withTotal) {
+        ProductCursor cursor = null;
+        if (cursorToken != null && !cursorToken.isBlank()) {
+            cursor = ProductCursor.decode(cursorToken);
+            if (cursor.sortKey() != sortKey || cursor.descending() != descending) {
+                throw new IllegalArgumentException("Page cursor does not match the requested sort order");
+            }
+        }
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        boolean backward = cursor != null && cursor.backward();
+        
+        // one extra row tells whether another page exists in the reading direction
+        List<ProductSnapshot> rows = productSortedViews.read(category, includeInactive, sortKey, descending,
+                cursor, limit + 1);
+        boolean more = rows.size() > limit;
+        List<ProductSnapshot> items = !more ? rows : backward ? rows.subList(1, rows.size()) : rows.subList(0, limit);
+        
+        boolean hasNext = backward || more;
+        boolean hasPrevious = backward ? more : cursor != null;
+        String nextCursor = hasNext && !items.isEmpty()
+                ? ProductCursor.after(items.get(items.size() - 1), sortKey, descending).encode() : null;
+        String previousCursor = hasPrevious && !items.isEmpty()
+                ? ProductCursor.before(items.get(0), sortKey, descending).encode() : null;
+        
+        Long total = withTotal ? (long) productSortedViews.count(category, includeInactive) : null;
+        return new CursorPage<>(items.stream().map(ProductSnapshot::toProduct).toList(),
+                nextCursor, previousCursor, total);
+    }
+    
+    /**
+     * Search active products through the inverted index, best match first. Falls back
+     * to typo-tolerant matching when the exact search finds too few products.
+     */
     public List<Product> searchProducts(String keyword) {
-        return productRepository.searchByKeyword(keyword);
+        return findAllInOrder(searchIds(keyword));
+    }
+    
+    public List<Product> searchProducts(String keyword, boolean fuzzy) {
+        return findAllInOrder(productSearchIndex.search(keyword, fuzzy));
     }
     
+    /**
+     * Search active products through the inverted index. An unsorted pageable keeps
+     * relevance order; an explicit sort, which must be one of {@link ProductSortKey},
+     * is applied to the matched ids by the sorted views. Either way only the products
+     * of the requested page are loaded.
+     */
     public Page<Product> searchProducts(String keyword, Pageable pageable) {
-        return productRepository.searchByKeyword(keyword, pageable);
+        List<Long> ids = searchIds(keyword);
+        if (ids.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        ProductSortKey sortKey = ProductSortKey.fromSort(pageable.getSort());
+        if (sortKey != null) {
+            ids = productSortedViews.sortIds(ids, false, sortKey, isDescending(pageable.getSort()));
+        }
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAllInOrder(ids), pageable, ids.size());
+        }
+        
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        return new PageImpl<>(findAllInOrder(ids.subList(from, to)), pageable, ids.size());
+    }
+    
+    /**
+     * Autocomplete suggestions for a search-box prefix, best sellers first
+     */
+    public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+        return productSuggestIndex.suggest(prefix, Math.min(limit, ProductSuggestIndex.MAX_SUGGESTIONS));
+    }
+    
+    /**
+     * Facet counts for the given selection, answered from the bitmap index
+     */
+    public ProductFacets getFacets(FacetFilter filter) {
+        return productFacetIndex.facets(filter);
+    }
+    
+    /**
+     * Products matching a facet selection, served from memory. The bitmap index gives
+     * the total; the page itself is read off the pre-sorted view of the filter's
+     * category, in name order when the pageable is unsorted. No query is run.
+     */
+    public Page<Product> getFacetedProducts(FacetFilter filter, Pageable pageable) {
+        int total = productFacetIndex.count(filter);
+        if (total == 0) {
+            return Page.empty(pageable);
+        }
+        ProductSortKey sortKey = ProductSortKey.fromSort(pageable.getSort());
+        boolean descending = sortKey != null && isDescending(pageable.getSort());
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : total;
+        List<ProductSnapshot> page = productSortedViews.filter(filter.category(), filter.includeInactive(),
+                sortKey != null ? sortKey : ProductSortKey.NAME, descending, filter::matches, offset, limit);
+        return new PageImpl<>(page.stream().map(ProductSnapshot::toProduct).toList(), pageable, total);
     }
     
     public Page<Product> getAllProductsIncludingInactive(Pageable pageable) {
         return productRepository.findAll(pageable);
     }
     
+    /**
+     * Get a product through the product cache. The result is a detached copy: it can be
+     * modified and passed to saveProduct, but its lazy collections are not loaded.
+     */
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return getProductSnapshot(id).map(ProductSnapshot::toProduct);
+    }
+    
+    public Optional<ProductSnapshot> getProductSnapshot(Long id) {
+        return productCache.get(id, productRepository::findById);
+    }
+    
+    /**
+     * Get several products through the product cache; misses are loaded in one query
+     */
+    public Map<Long, ProductSnapshot> getProductSnapshots(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return productCache.getAll(ids, productRepository::findAllById);
     }
     
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        onProductChanged(saved);
+        return saved;
+    }
+    
+    /**
+     * Save a batch of products. New products draw their ids from the pooled sequence,
+     * so Hibernate sends the inserts as JDBC batches; the indexes are updated and the
+     * catalog version bumped once for the whole batch after commit.
+     */
+    public List<Product> saveProducts(List<Product> products) {
+        if (products.isEmpty()) {
+            return products;
+        }
+        List<Product> saved = productRepository.saveAll(products);
+        onProductsChanged(saved.stream().map(Product::getId).toList());
+        return saved;
+    }
+    
+    /**
+     * Hold the quantities with one conditional UPDATE per product, in ascending id order
+     * so concurrent orders lock rows in the same order; hot products are held in the
+     * in-memory counters instead. Must run in a transaction. When any product is short,
+     * the units already held are given back and IllegalArgumentException is thrown, so
+     * the transaction stays usable for other work. If the database cannot say whether a
+     * hold was written, IllegalStateException is thrown and the transaction must roll back.
+     *
+     * @param quantities quantity per product id
+     */
+    public void reserveStock(Map<Long, Integer> quantities) {
+        Map<Long, Integer> held = new HashMap<>();
+        List<Long> changed = new ArrayList<>(quantities.size());
+        List<Integer> changedQuantities = new ArrayList<>(quantities.size());
+        for (Long id : sortedIds(quantities)) {
+            int quantity = quantities.get(id);
+            HotStockCounters.Admission admission = HotStockCounters.Admission.NOT_HOT;
+            if (hotStockCounters.isHot(id)) {
+                admission = getProductSnapshot(id).filter(ProductSnapshot::active).isPresent()
+                        ? hotStockCounters.reserve(id, quantity)
+                        : HotStockCounters.Admission.SHORT;
+            }
+            if (admission == HotStockCounters.Admission.SHORT) {
+                releaseReservedStock(held);
+                throw insufficientStock(id);
+            }
+            if (admission == HotStockCounters.Admission.TAKEN) {
+                held.put(id, quantity);
+            } else {
+                changed.add(id);
+                changedQuantities.add(quantity);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        
+        // All database holds go out as one batch; the counts say which products were short
+        LocalDateTime now = LocalDateTime.now();
+        int[] counts = productRepository.reserveStockBatch(changed, changedQuantities, now);
+        // A count other than 0 or 1, such as SUCCESS_NO_INFO, leaves it unknown whether the
+        // row was held; failing the transaction lets its rollback undo every hold
+        for (int i = 0; i < changed.size(); i++) {
+            if (i >= counts.length || counts[i] != 0 && counts[i] != 1) {
+                throw new IllegalStateException("Stock hold of product " + changed.get(i)
+                        + " reported " + (i < counts.length ? counts[i] : "no") + " updated rows");
+            }
+        }
+        Map<Long, Integer> reserved = new HashMap<>();
+        Long shortId = null;
+        for (int i = 0; i < changed.size(); i++) {
+            Long id = changed.get(i);
+            int quantity = changedQuantities.get(i);
+            if (counts[i] != 1) {
+                shortId = shortId != null ? shortId : id;
+            } else if (shortId == null && hotStockCounters.claimAfterDatabaseReserve(id, quantity)) {
+                held.put(id, quantity);
+                reserved.put(id, quantity);
+            } else {
+                // written to the row but not claimed from the counters
+                productRepository.releaseReservedStock(id, quantity, now);
+                shortId = shortId != null ? shortId : id;
+            }
+        }
+        onStockChanged(reserved, 0, 1);
+        if (shortId != null) {
+            releaseReservedStock(held);
+            throw insufficientStock(shortId);
+        }
+    }
+    
+    /**
+     * Take held units off stock once their order is paid
+     */
+    public void commitReservedStock(Map<Long, Integer> quantities) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Integer> sold = new HashMap<>();
+        for (Long id : sortedIds(quantities)) {
+            if (!hotStockCounters.commit(id, quantities.get(id))) {
+                productRepository.commitReservedStock(id, quantities.get(id), now);
+                sold.put(id, quantities.get(id));
+            }
+        }
+        onStockChanged(sold, -1, -1);
+    }
+    
+    /**
+     * Give held units back to available stock
+     */
+    public void releaseReservedStock(Map<Long, Integer> quantities) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Integer> released = new HashMap<>();
+        for (Long id : sortedIds(quantities)) {
+            if (!hotStockCounters.release(id, quantities.get(id))) {
+                productRepository.releaseReservedStock(id, quantities.get(id), now);
+                released.put(id, quantities.get(id));
+            }
+        }
+        onStockChanged(released, 0, -1);
+    }
+    
+    /**
+     * Move a product's stock holds to or from the in-memory hot counters. Leaving hot
+     * mode writes the collected changes back before the database takes over again.
+     *
+     * @throws IllegalArgumentException if there is no such product
+     * @throws IllegalStateException if holds in flight did not finish in time
+     */
+    public void setHotStock(Long id, boolean hot) {
+        if (hot) {
+            hotStockCounters.enable(id);
+        } else {
+            hotStockCounters.disable(id);
+        }
+        onProductsChanged(List.of(id));
     }
     
     public void deleteProduct(Long id) {
@@ -60,10 +372,138 @@ public class ProductService {
             Product p = product.get();
             p.setActive(false);
             productRepository.save(p);
+            onProductChanged(p);
         }
     }
     
     public List<Product> getInStockProducts() {
-        return productRepository.findByStockQuantityGreaterThan(0);
+        return findAllInOrder(productFacetIndex.matchingIds(FacetFilter.activeOnly(null, true, null)));
+    }
+    
+    // Exact matches keep their place at the top; fuzzy matches only fill in after them
+    private List<Long> searchIds(String keyword) {
+        List<Long> exact = productSearchIndex.search(keyword);
+        if (exact.size() >= MIN_EXACT_SEARCH_HITS) {
+            return exact;
+        }
+        List<Long> ids = new ArrayList<>(exact);
+        for (Long id : productSearchIndex.search(keyword, true)) {
+            if (!exact.contains(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+    
+    // Loads products by id, in chunks, and returns them in the order of the given ids
+    private List<Product> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Product> byId = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += ID_LOAD_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + ID_LOAD_CHUNK, ids.size()));
+            for (Product product : productRepository.findAllById(chunk)) {
+                if (product.isActive()) {
+                    byId.put(product.getId(), product);
+                }
+            }
+        }
+        List<Product> ordered = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            Product product = byId.get(id);
+            if (product != null) {
+                ordered.add(product);
+            }
+        }
+        return ordered;
+    }
+    
+    private static boolean isDescending(Sort sort) {
+        return sort.iterator().next().isDescending();
+    }
+    
+    private void onProductChanged(Product product) {
+        onProductsChanged(List.of(product.getId()));
+    }
+    
+    /**
+     * Shift the indexed stock of a product whose row was changed by the given amounts in
+     * the current transaction; the indexes and the catalog version follow after commit
+     */
+    public void onStockChanged(Long id, int stockDelta, int reservedDelta) {
+        onStockChanged(Map.of(id, 1), stockDelta, reservedDelta);
+    }
+    
+    private IllegalArgumentException insufficientStock(Long id) {
+        productCache.invalidate(id);
+        String name = getProductSnapshot(id).map(ProductSnapshot::name).orElse("#" + id);
+        return new IllegalArgumentException("Product " + name + " is not available or insufficient stock");
+    }
+    
+    private static List<Long> sortedIds(Map<Long, Integer> quantities) {
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        Collections.sort(ids);
+        return ids;
+    }
+    
+    // The cache entry is dropped right away and again after commit, so a reader that
+    // reloads the row before the transaction commits cannot leave a stale copy behind.
+    // The indexes get the rows as read after commit: bulk updates leave no entity
+    // behind, and a saved entity keeps the caller's value of columns a save does not
+    // write, such as reserved_quantity.
+    private void onProductsChanged(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        ids.forEach(productCache::invalidate);
+        afterCommit(() -> {
+            ids.forEach(productCache::invalidate);
+            for (Product product : productRepository.findAllById(ids)) {
+                productIndexes.forEach(index -> index.index(product));
+            }
+            catalogVersion.bump();
+        });
+    }
+    
+    // Holds, sales and releases only move stock_quantity and reserved_quantity by known
+    // amounts, so the checkout path drops the cache entries and shifts the indexed
+    // quantities in place instead of reading the rows back and re-indexing them.
+    // Held units alone do not change the catalog version, or every checkout would
+    // defeat the conditional requests; a sale or an in-stock flip does.
+    // Each quantity is scaled by the per-unit change of stock_quantity and reserved_quantity
+    private void onStockChanged(Map<Long, Integer> quantities, int stockPerUnit, int reservedPerUnit) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        quantities.keySet().forEach(productCache::invalidate);
+        afterCommit(() -> {
+            quantities.keySet().forEach(productCache::invalidate);
+            boolean listingChanged = stockPerUnit != 0;
+            for (Map.Entry<Long, Integer> change : quantities.entrySet()) {
+                Long id = change.getKey();
+                int quantity = change.getValue();
+                boolean wasInStock = productFacetIndex.isInStock(id);
+                productIndexes.forEach(index -> index.adjustStock(id, stockPerUnit * quantity, reservedPerUnit * quantity));
+                listingChanged |= wasInStock != productFacetIndex.isInStock(id);
+            }
+            if (listingChanged) {
+                catalogVersion.bump();
+            }
+        });
+    }
+    
+    // Index updates must not expose writes that are later rolled back
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 }
\ No newline at end of file
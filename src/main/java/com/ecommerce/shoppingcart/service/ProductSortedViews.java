@@ -0,0 +1,286 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.ProductCursor;
+import com.ecommerce.shoppingcart.dto.ProductSnapshot;
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.repository.ProductSortKey;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Pre-sorted in-memory listings of the catalog, one per sort key and partition.
+ *
+ * A partition is either the whole catalog or one category, limited to active
+ * products or including inactive ones. Writes go to a sorted set per view; reads
+ * use an array copy of it that is rebuilt lazily after a write, so listing a page
+ * is a binary search for the cursor plus an array slice.
+ */
+@Component
+public class ProductSortedViews implements ProductIndex {
+    
+    private final Map<ViewKey, SortedView> views = new HashMap<>();
+    
+    // productId -> snapshot currently held by the views, needed to unindex on update
+    private final Map<Long, ProductSnapshot> current = new HashMap<>();
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    public ProductSortedViews() {
+        List<Product.Category> partitions = new ArrayList<>(Arrays.asList(Product.Category.values()));
+        partitions.add(null);
+        for (ProductSortKey sortKey : ProductSortKey.values()) {
+            for (Product.Category category : partitions) {
+                views.put(new ViewKey(sortKey, category, false), new SortedView(sortKey.comparator()));
+                views.put(new ViewKey(sortKey, category, true), new SortedView(sortKey.comparator()));
+            }
+        }
+    }
+    
+    @Override
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        ProductSnapshot snapshot = ProductSnapshot.from(product);
+        lock.writeLock().lock();
+        try {
+            unindex(product.getId());
+            forEachView(snapshot, view -> view.add(snapshot));
+            current.put(snapshot.id(), snapshot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // The product is moved in every view, not only the stock-sorted ones: the views
+    // hand out the snapshots themselves, so each must show the new quantities
+    @Override
+    public void adjustStock(Long productId, int stockDelta, int reservedDelta) {
+        lock.writeLock().lock();
+        try {
+            ProductSnapshot previous = current.get(productId);
+            if (previous != null) {
+                ProductSnapshot adjusted = previous.withStockChange(stockDelta, reservedDelta);
+                unindex(productId);
+                forEachView(adjusted, view -> view.add(adjusted));
+                current.put(productId, adjusted);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            unindex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            views.values().forEach(SortedView::clear);
+            current.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Read up to limit products past the cursor in display order, also when the cursor
+     * reads backward. A null cursor starts at the first page.
+     */
+    public List<ProductSnapshot> read(Product.Category category, boolean includeInactive, ProductSortKey sortKey,
+                                      boolean descending, ProductCursor cursor, int limit) {
+        ProductSnapshot[] sorted = snapshot(new ViewKey(sortKey, category, includeInactive));
+        int n = sorted.length;
+        
+        // positions are counted in display order, which is the array reversed when descending
+        int from;
+        int to;
+        if (cursor == null) {
+            from = 0;
+            to = Math.min(n, limit);
+        } else {
+            int lower = lowerBound(sorted, sortKey, cursor);
+            boolean found = lower < n && sorted[lower].id().equals(cursor.id());
+            int upper = found ? lower + 1 : lower;
+            int afterCursor = descending ? n - lower : upper;
+            int beforeCursor = descending ? n - upper : lower;
+            if (cursor.backward()) {
+                from = Math.max(0, beforeCursor - limit);
+                to = beforeCursor;
+            } else {
+                from = afterCursor;
+                to = Math.min(n, afterCursor + limit);
+            }
+        }
+        
+        List<ProductSnapshot> page = new ArrayList<>(Math.max(0, to - from));
+        for (int position = from; position < to; position++) {
+            page.add(sorted[descending ? n - 1 - position : position]);
+        }
+        return page;
+    }
+    
+    /**
+     * Up to limit products of a partition that pass the filter, in display order,
+     * skipping the first offset of them. Walks the pre-sorted view and stops once the
+     * page is full, so nothing is sorted per request.
+     */
+    public List<ProductSnapshot> filter(Product.Category category, boolean includeInactive, ProductSortKey sortKey,
+                                        boolean descending, Predicate<ProductSnapshot> filter,
+                                        long offset, int limit) {
+        ProductSnapshot[] sorted = snapshot(new ViewKey(sortKey, category, includeInactive));
+        int n = sorted.length;
+        List<ProductSnapshot> page = new ArrayList<>(Math.min(limit, n));
+        long skipped = 0;
+        for (int position = 0; position < n && page.size() < limit; position++) {
+            ProductSnapshot product = sorted[descending ? n - 1 - position : position];
+            if (!filter.test(product)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(product);
+            }
+        }
+        return page;
+    }
+    
+    /**
+     * The given product ids in display order. Ids the views do not hold, and inactive
+     * products unless includeInactive, are left out.
+     */
+    public List<Long> sortIds(Collection<Long> ids, boolean includeInactive, ProductSortKey sortKey,
+                              boolean descending) {
+        List<ProductSnapshot> products = new ArrayList<>(ids.size());
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                ProductSnapshot product = current.get(id);
+                if (product != null && (includeInactive || product.active())) {
+                    products.add(product);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Comparator<ProductSnapshot> order = sortKey.comparator();
+        products.sort(descending ? order.reversed() : order);
+        List<Long> sortedIds = new ArrayList<>(products.size());
+        for (ProductSnapshot product : products) {
+            sortedIds.add(product.id());
+        }
+        return sortedIds;
+    }
+    
+    public int count(Product.Category category, boolean includeInactive) {
+        // every sort key holds the same products, so any view gives the count
+        return snapshot(new ViewKey(ProductSortKey.NAME, category, includeInactive)).length;
+    }
+    
+    private ProductSnapshot[] snapshot(ViewKey key) {
+        SortedView view = views.get(key);
+        ProductSnapshot[] sorted = view.array;
+        if (sorted != null) {
+            return sorted;
+        }
+        lock.readLock().lock();
+        try {
+            // concurrent readers may both rebuild; they produce the same array
+            sorted = view.entries.toArray(new ProductSnapshot[0]);
+            view.array = sorted;
+            return sorted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Index of the first product that sorts at or after the cursor position
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int lowerBound(ProductSnapshot[] sorted, ProductSortKey sortKey, ProductCursor cursor) {
+        Comparator<Comparable> values = Comparator.nullsFirst(Comparator.naturalOrder());
+        Comparable keyValue = cursor.typedKeyValue();
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = values.compare(sortKey.sortValue(sorted[middle]), keyValue);
+            if (comparison == 0) {
+                comparison = sorted[middle].id().compareTo(cursor.id());
+            }
+            if (comparison < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private void unindex(Long productId) {
+        ProductSnapshot previous = current.remove(productId);
+        if (previous != null) {
+            forEachView(previous, view -> view.remove(previous));
+        }
+    }
+    
+    private void forEachView(ProductSnapshot product, Consumer<SortedView> action) {
+        for (ProductSortKey sortKey : ProductSortKey.values()) {
+            action.accept(views.get(new ViewKey(sortKey, null, true)));
+            action.accept(views.get(new ViewKey(sortKey, product.category(), true)));
+            if (product.active()) {
+                action.accept(views.get(new ViewKey(sortKey, null, false)));
+                action.accept(views.get(new ViewKey(sortKey, product.category(), false)));
+            }
+        }
+    }
+    
+    private record ViewKey(ProductSortKey sortKey, Product.Category category, boolean includeInactive) {
+    }
+    
+    private static final class SortedView {
+        private final TreeSet<ProductSnapshot> entries;
+        
+        // read-only copy of entries; null until the next read after a write
+        private volatile ProductSnapshot[] array = new ProductSnapshot[0];
+        
+        private SortedView(Comparator<ProductSnapshot> comparator) {
+            this.entries = new TreeSet<>(comparator);
+        }
+        
+        private void add(ProductSnapshot product) {
+            entries.add(product);
+            array = null;
+        }
+        
+        private void remove(ProductSnapshot product) {
+            entries.remove(product);
+            array = null;
+        }
+        
+        private void clear() {
+            entries.clear();
+            array = null;
+        }
+    }
+}
\ No newline at end of file
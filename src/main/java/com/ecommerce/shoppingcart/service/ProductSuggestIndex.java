@@ -0,0 +1,251 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.ProductSuggestion;
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix trie over the names of active products, used for search-box autocomplete.
+ *
+ * A name is inserted once from every word start, so "bask" finds "Professional
+ * Basketball". Every node caches its best suggestions ranked by units sold, which
+ * makes a lookup a walk down the prefix with no ranking work at query time. A
+ * write only re-ranks the nodes on the paths of the product it touches.
+ */
+@Component
+public class ProductSuggestIndex implements ProductIndex {
+    
+    public static final int MAX_SUGGESTIONS = 10;
+    
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::popularity).reversed()
+            .thenComparing(Entry::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Entry::productId);
+    
+    private final OrderRepository orderRepository;
+    
+    private final Node root = new Node();
+    
+    // productId -> indexed entry, needed to unindex on rename or deactivation
+    private final Map<Long, Entry> entries = new HashMap<>();
+    
+    // productId -> units sold; kept for products that are not currently indexed too
+    private final Map<Long, Long> popularity = new ConcurrentHashMap<>();
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    public ProductSuggestIndex(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+    
+    /**
+     * Seed popularity from order history before ProductService indexes the catalog
+     */
+    @PostConstruct
+    public void loadPopularity() {
+        for (Object[] row : orderRepository.sumQuantityByProduct()) {
+            popularity.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+    }
+    
+    @Override
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        if (!product.isActive() || keys(product.getName()).isEmpty()) {
+            remove(product.getId());
+            return;
+        }
+        
+        Entry entry = new Entry(product.getId(), product.getName(), popularity.getOrDefault(product.getId(), 0L));
+        lock.writeLock().lock();
+        try {
+            unindex(product.getId());
+            insert(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            unindex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children.clear();
+            root.ends.clear();
+            root.top = Collections.emptyList();
+            entries.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Add sold units to a product's popularity and re-rank it
+     */
+    public void recordSale(Long productId, int quantity) {
+        long sold = popularity.merge(productId, (long) quantity, Long::sum);
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(productId);
+            if (entry != null) {
+                unindex(productId);
+                insert(new Entry(productId, entry.name(), sold));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Best-selling active products with a name word starting with the prefix
+     */
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        String key = String.join(" ", ProductSearchIndex.tokenize(prefix));
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        
+        List<Entry> top;
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+            }
+            top = node != null ? node.top : Collections.<Entry>emptyList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<ProductSuggestion> suggestions = new ArrayList<>(Math.min(limit, top.size()));
+        for (Entry entry : top) {
+            if (suggestions.size() == limit) {
+                break;
+            }
+            suggestions.add(new ProductSuggestion(entry.productId(), entry.name()));
+        }
+        return suggestions;
+    }
+    
+    private void insert(Entry entry) {
+        for (String key : keys(entry.name())) {
+            List<Node> path = path(key, true);
+            path.get(path.size() - 1).ends.put(entry.productId(), entry);
+            rerank(path);
+        }
+        entries.put(entry.productId(), entry);
+    }
+    
+    private void unindex(Long productId) {
+        Entry entry = entries.remove(productId);
+        if (entry == null) {
+            return;
+        }
+        for (String key : keys(entry.name())) {
+            List<Node> path = path(key, false);
+            if (path.size() != key.length() + 1) {
+                continue;
+            }
+            path.get(path.size() - 1).ends.remove(productId);
+            rerank(path);
+            prune(key, path);
+        }
+    }
+    
+    // Nodes from the root down to the end of the key; stops early if a node is missing
+    private List<Node> path(String key, boolean create) {
+        List<Node> path = new ArrayList<>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null) {
+                if (!create) {
+                    return path;
+                }
+                child = new Node();
+                node.children.put(key.charAt(i), child);
+            }
+            node = child;
+            path.add(node);
+        }
+        return path;
+    }
+    
+    // Recompute the cached suggestions bottom-up: each node merges its own entries
+    // with the already ranked lists of its children
+    private void rerank(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            List<Entry> candidates = new ArrayList<>(node.ends.values());
+            for (Node child : node.children.values()) {
+                candidates.addAll(child.top);
+            }
+            candidates.sort(RANKING);
+            
+            Set<Long> seen = new HashSet<>();
+            List<Entry> top = new ArrayList<>(MAX_SUGGESTIONS);
+            for (Entry candidate : candidates) {
+                if (seen.add(candidate.productId()) && top.size() < MAX_SUGGESTIONS) {
+                    top.add(candidate);
+                }
+            }
+            node.top = List.copyOf(top);
+        }
+    }
+    
+    private void prune(String key, List<Node> path) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            if (!node.children.isEmpty() || !node.ends.isEmpty()) {
+                return;
+            }
+            path.get(i - 1).children.remove(key.charAt(i - 1));
+        }
+    }
+    
+    // Normalized name from every word start, e.g. "red shoe" and "shoe"
+    private static Set<String> keys(String name) {
+        List<String> tokens = ProductSearchIndex.tokenize(name);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+        }
+        return keys;
+    }
+    
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final Map<Long, Entry> ends = new HashMap<>(2);
+        private List<Entry> top = Collections.emptyList();
+    }
+    
+    private record Entry(Long productId, String name, long popularity) {
+    }
+}
\ No newline at end of file
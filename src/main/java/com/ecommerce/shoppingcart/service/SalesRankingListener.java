@@ -0,0 +1,33 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.OrderEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts sold units towards the suggestion ranking. Units of a batch are summed per
+ * product first, so a burst of orders for one product re-ranks it once.
+ */
+@Component
+public class SalesRankingListener implements OrderEventListener {
+    
+    private final ProductSuggestIndex productSuggestIndex;
+    
+    public SalesRankingListener(ProductSuggestIndex productSuggestIndex) {
+        this.productSuggestIndex = productSuggestIndex;
+    }
+    
+    @Override
+    public void onEvents(List<OrderEvent> events) {
+        Map<Long, Integer> sold = new HashMap<>();
+        for (OrderEvent event : events) {
+            if (event instanceof OrderEvent.OrderPlaced placed) {
+                placed.quantities().forEach((productId, quantity) -> sold.merge(productId, quantity, Integer::sum));
+            }
+        }
+        sold.forEach(productSuggestIndex::recordSale);
+    }
+}
\ No newline at end of file
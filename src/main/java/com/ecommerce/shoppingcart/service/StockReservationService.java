@@ -0,0 +1,204 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.StockReservation;
+import com.ecommerce.shoppingcart.repository.OrderRepository;
+import com.ecommerce.shoppingcart.repository.ProductRepository;
+import com.ecommerce.shoppingcart.repository.StockReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock holds for orders between checkout and payment. Checkout holds the ordered
+ * units for ttl-minutes; a completed payment turns the hold into a sale, and a failed
+ * payment or an expired hold gives the units back. Products keep the held units in
+ * their reserved quantity, so available stock is a subtraction, not a query.
+ *
+ * Every change of a hold is a conditional status update, so a payment and the expiry
+ * job racing for the same hold cannot both apply it. Holds are only taken again or
+ * sold while their order is pending; the order row is locked for that check, so a
+ * cancellation and a payment of the same order run one after the other.
+ */
+@Service
+public class StockReservationService {
+    
+    private static final Logger log = LoggerFactory.getLogger(StockReservationService.class);
+    
+    private final StockReservationRepository reservationRepository;
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final int expireBatchSize;
+    
+    private final AtomicLong held = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong reacquired = new AtomicLong();
+    
+    public StockReservationService(StockReservationRepository reservationRepository,
+                                   OrderRepository orderRepository,
+                                   ProductRepository productRepository, ProductService productService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.order.reservation.ttl-minutes:15}") long ttlMinutes,
+                                   @Value("${app.order.reservation.expire-batch-size:200}") int expireBatchSize) {
+        this.reservationRepository = reservationRepository;
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.expireBatchSize = expireBatchSize;
+    }
+    
+    /**
+     * Record the holds of a new order whose stock was just held with
+     * {@link ProductService#reserveStock}, in the same transaction
+     *
+     * @param quantities quantity per product id
+     */
+    public void recordHolds(Order order, Map<Long, Integer> quantities) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        List<StockReservation> reservations = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            reservations.add(new StockReservation(order, productRepository.getReferenceById(entry.getKey()),
+                    entry.getValue(), expiresAt));
+        }
+        reservationRepository.saveAll(reservations);
+        held.addAndGet(reservations.size());
+    }
+    
+    /**
+     * Make sure every line of an unpaid order is held before taking payment: holds that
+     * were released are placed again and all holds get a fresh time to live.
+     *
+     * @throws IllegalArgumentException if a released line can no longer be held
+     * @throws IllegalStateException if the order is no longer pending
+     */
+    @Transactional
+    public void hold(Long orderId) {
+        requirePending(orderId);
+        Map<Long, Integer> retaken = new HashMap<>();
+        for (Object[] row : reservationRepository.findByOrderId(orderId)) {
+            if (row[3] == StockReservation.Status.RELEASED && reservationRepository.transition(
+                    (Long) row[0], StockReservation.Status.RELEASED, StockReservation.Status.HELD) == 1) {
+                retaken.merge((Long) row[1], (Integer) row[2], Integer::sum);
+            }
+        }
+        productService.reserveStock(retaken);
+        reservationRepository.extendHolds(orderId, LocalDateTime.now().plus(ttl));
+        reacquired.addAndGet(retaken.size());
+    }
+    
+    /**
+     * Turn the order's holds into a sale once it is paid. A hold that expired in the
+     * meantime is taken again if the stock is still there.
+     *
+     * @throws IllegalArgumentException if an expired line can no longer be sold
+     * @throws IllegalStateException if the order is no longer pending, for example
+     *         because it was cancelled and its holds released
+     */
+    @Transactional
+    public void commit(Long orderId) {
+        requirePending(orderId);
+        Map<Long, Integer> sold = new HashMap<>();
+        Map<Long, Integer> retaken = new HashMap<>();
+        for (Object[] row : reservationRepository.findByOrderId(orderId)) {
+            Long id = (Long) row[0];
+            if (reservationRepository.transition(
+                    id, StockReservation.Status.HELD, StockReservation.Status.COMMITTED) == 1) {
+                sold.merge((Long) row[1], (Integer) row[2], Integer::sum);
+            } else if (reservationRepository.transition(
+                    id, StockReservation.Status.RELEASED, StockReservation.Status.COMMITTED) == 1) {
+                retaken.merge((Long) row[1], (Integer) row[2], Integer::sum);
+            }
+        }
+        productService.reserveStock(retaken);
+        retaken.forEach((productId, quantity) -> sold.merge(productId, quantity, Integer::sum));
+        productService.commitReservedStock(sold);
+        committed.addAndGet(sold.size());
+        reacquired.addAndGet(retaken.size());
+    }
+    
+    // A released hold of a cancelled or paid order must not be taken again
+    private void requirePending(Long orderId) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new IllegalArgumentException("Order not found"));
+        if (order.getStatus() != Order.OrderStatus.PENDING) {
+            throw new IllegalStateException("Order " + orderId + " is " + order.getStatus() + ", not awaiting payment");
+        }
+    }
+    
+    /**
+     * Give back the units an order holds, after a failed payment or a cancellation
+     */
+    @Transactional
+    public void release(Long orderId) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Object[] row : reservationRepository.findByOrderId(orderId)) {
+            if (row[3] == StockReservation.Status.HELD && reservationRepository.transition(
+                    (Long) row[0], StockReservation.Status.HELD, StockReservation.Status.RELEASED) == 1) {
+                quantities.merge((Long) row[1], (Integer) row[2], Integer::sum);
+            }
+        }
+        productService.releaseReservedStock(quantities);
+        released.addAndGet(quantities.size());
+    }
+    
+    /**
+     * Release expired holds, oldest first, in batches of expire-batch-size, each in its
+     * own transaction
+     */
+    @Scheduled(fixedDelayString = "${app.order.reservation.expire-interval-ms:30000}")
+    public void expireHolds() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            Integer found;
+            do {
+                found = transactionTemplate.execute(status -> expireBatch(now));
+            } while (found != null && found == expireBatchSize);
+        } catch (RuntimeException e) {
+            log.warn("Could not release expired stock holds; retrying on the next run", e);
+        }
+    }
+    
+    private int expireBatch(LocalDateTime now) {
+        List<Object[]> rows = reservationRepository.findExpired(now, Limit.of(expireBatchSize));
+        Map<Long, Integer> quantities = new HashMap<>();
+        int count = 0;
+        for (Object[] row : rows) {
+            if (reservationRepository.transition(
+                    (Long) row[0], StockReservation.Status.HELD, StockReservation.Status.RELEASED) == 1) {
+                quantities.merge((Long) row[1], (Integer) row[2], Integer::sum);
+                count++;
+            }
+        }
+        productService.releaseReservedStock(quantities);
+        expired.addAndGet(count);
+        return rows.size();
+    }
+    
+    public Stats getStats() {
+        return new Stats(held.get(), committed.get(), released.get(), expired.get(), reacquired.get());
+    }
+    
+    public record Stats(long held, long committed, long released, long expired, long reacquired) {
+    }
+}
\ No newline at end of file
@@ -6,7 +6,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class UserService {
@@ -14,6 +16,9 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     
+    // usernames never change once registered, so username -> id can be cached for good
+    private final Map<String, Long> userIds = new ConcurrentHashMap<>();
+    
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
@@ -37,6 +42,20 @@ public class UserService {
         return userRepository.findByUsername(username);
     }
     
+    /**
+     * Look up only the id of a user, cached after the first lookup
+     */
+    public Optional<Long> findIdByUsername(String username) {
+        Long id = userIds.get(username);
+        if (id == null) {
+            id = userRepository.findIdByUsername(username).orElse(null);
+            if (id != null) {
+                userIds.put(username, id);
+            }
+        }
+        return Optional.ofNullable(id);
+    }
+    
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
     }
@@ -7,28 +7,41 @@ function ProductBrowser() {
     const [categories, setCategories] = useState([]);
     const [selectedCategory, setSelectedCategory] = useState('');
     const [searchTerm, setSearchTerm] = useState('');
+    const [suggestions, setSuggestions] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
     const [loading, setLoading] = useState(true);
     const [error, setError] = useState(null);
 
-    // Fetch products from REST API
-    const fetchProducts = async (category = '', search = '') => {
-        setLoading(true);
+    const PAGE_SIZE = 12;
+
+    // Fetch products from REST API. Browsing uses cursor pages; search returns all matches.
+    const fetchProducts = async (category = '', search = '', cursor = null) => {
+        if (!cursor) setLoading(true);
         try {
             let url = '/api/products';
             const params = new URLSearchParams();
             
             if (category) params.append('category', category);
-            if (search) params.append('search', search);
-            
-            if (params.toString()) {
-                url += '?' + params.toString();
+            if (search) {
+                params.append('search', search);
+            } else {
+                params.append('limit', PAGE_SIZE);
+                if (cursor) params.append('cursor', cursor);
             }
             
+            url += '?' + params.toString();
+            
             const response = await fetch(url);
             if (!response.ok) throw new Error('Failed to fetch products');
             
             const data = await response.json();
-            setProducts(data);
+            if (search) {
+                setProducts(data);
+                setNextCursor(null);
+            } else {
+                setProducts(previous => cursor ? [...previous, ...data.items] : data.items);
+                setNextCursor(data.nextCursor);
+            }
             setError(null);
         } catch (err) {
             setError(err.message);
@@ -49,6 +62,24 @@ function ProductBrowser() {
         }
     };
 
+    // Fetch typeahead suggestions for the search box, debounced per keystroke
+    useEffect(() => {
+        const prefix = searchTerm.trim();
+        if (prefix.length < 2) {
+            setSuggestions([]);
+            return;
+        }
+        const timer = setTimeout(async () => {
+            try {
+                const response = await fetch('/api/products/suggest?prefix=' + encodeURIComponent(prefix));
+                if (response.ok) setSuggestions(await response.json());
+            } catch (err) {
+                console.error('Error fetching suggestions:', err);
+            }
+        }, 150);
+        return () => clearTimeout(timer);
+    }, [searchTerm]);
+
     // Initial load
     useEffect(() => {
         fetchProducts();
@@ -116,7 +147,14 @@ function ProductBrowser() {
                                         placeholder="Search products..."
                                         value={searchTerm}
                                         onChange={(e) => setSearchTerm(e.target.value)}
+                                        list="product-browser-suggestions"
+                                        autoComplete="off"
                                     />
+                                    <datalist id="product-browser-suggestions">
+                                        {suggestions.map(suggestion => (
+                                            <option key={suggestion.id} value={suggestion.name} />
+                                        ))}
+                                    </datalist>
                                     <button className="btn btn-outline-primary" type="submit">
                                         <i className="fas fa-search"></i>
                                     </button>
@@ -180,6 +218,18 @@ function ProductBrowser() {
                         )}
                     </div>
 
+                    {/* Load More */}
+                    {nextCursor && (
+                        <div className="text-center mt-2">
+                            <button
+                                className="btn btn-outline-primary btn-sm"
+                                onClick={() => fetchProducts(selectedCategory, '', nextCursor)}
+                            >
+                                Load more
+                            </button>
+                        </div>
+                    )}
+
                     {/* Product Count */}
                     <div className="text-center mt-3">
                         <small className="text-muted">
@@ -0,0 +1,166 @@
+package com.ecommerce.shoppingcart.controller;
+
+import com.ecommerce.shoppingcart.config.GuestCartCookie;
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.model.User;
+import com.ecommerce.shoppingcart.repository.CartItemRepository;
+import com.ecommerce.shoppingcart.service.CartService;
+import com.ecommerce.shoppingcart.service.CartStore;
+import com.ecommerce.shoppingcart.service.GuestCartStore;
+import com.ecommerce.shoppingcart.service.ProductService;
+import com.ecommerce.shoppingcart.service.UserService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+
+/**
+ * A visitor's cart lives in memory under the guest cart cookie, without a session or
+ * cart_items rows, until a login moves it into the user's cart.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:guestcart;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class GuestCartTest {
+    
+    private static final String PASSWORD = "password";
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private CartStore cartStore;
+    
+    @Autowired
+    private GuestCartStore guestCartStore;
+    
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    
+    @MockitoSpyBean
+    private ProductService productService;
+    
+    @Test
+    void anonymousAddSetsOnlyTheGuestCookie() throws Exception {
+        Product product = newProduct("Guest Only", 5);
+        long rows = cartItemRepository.count();
+        
+        MvcResult result = addAsGuest(null, product, 2);
+        
+        MockHttpServletResponse response = result.getResponse();
+        assertThat(response.getHeaders(HttpHeaders.SET_COOKIE)).hasSize(1);
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).startsWith(GuestCartCookie.NAME + "=")
+                .contains("HttpOnly");
+        assertThat(result.getRequest().getSession(false)).isNull();
+        assertThat(cartItemRepository.count()).isEqualTo(rows);
+        assertThat(guestCartStore.getQuantities(response.getCookie(GuestCartCookie.NAME).getValue()))
+                .containsExactly(Map.entry(product.getId(), 2));
+        
+        // the same cookie keeps adding to the same cart
+        Cookie cookie = response.getCookie(GuestCartCookie.NAME);
+        addAsGuest(cookie, product, 1);
+        assertThat(guestCartStore.getQuantities(cookie.getValue())).containsExactly(Map.entry(product.getId(), 3));
+        assertThat(cartItemRepository.count()).isEqualTo(rows);
+    }
+    
+    @Test
+    void loginMergesTheGuestCartUpToTheAvailableStock() throws Exception {
+        Product shared = newProduct("Merged Partly", 5);
+        Product guestOnly = newProduct("Merged Whole", 10);
+        Product soldToUser = newProduct("Already Held", 2);
+        User user = registerUser("guest-merge");
+        cartService.addToCart(user, shared.getId(), 3);
+        cartService.addToCart(user, soldToUser.getId(), 2);
+        
+        Cookie cookie = addAsGuest(null, shared, 4).getResponse().getCookie(GuestCartCookie.NAME);
+        addAsGuest(cookie, guestOnly, 2);
+        addAsGuest(cookie, soldToUser, 1);
+        
+        MvcResult login = login(user, cookie);
+        
+        assertThat(login.getResponse().getHeaders(HttpHeaders.SET_COOKIE))
+                .anySatisfy(header -> assertThat(header).startsWith(GuestCartCookie.NAME + "=;")
+                        .contains("Max-Age=0"));
+        assertThat(guestCartStore.getQuantities(cookie.getValue())).isEmpty();
+        assertThat(cartStore.getQuantity(user.getId(), shared.getId())).isEqualTo(5);
+        assertThat(cartStore.getQuantity(user.getId(), guestOnly.getId())).isEqualTo(2);
+        assertThat(cartStore.getQuantity(user.getId(), soldToUser.getId())).isEqualTo(2);
+    }
+    
+    @Test
+    void failedMergePutsTheGuestCartBackForTheNextLogin() throws Exception {
+        Product product = newProduct("Merged Later", 5);
+        User user = registerUser("guest-retry");
+        Cookie cookie = addAsGuest(null, product, 2).getResponse().getCookie(GuestCartCookie.NAME);
+        
+        doThrow(new IllegalStateException("Catalog unavailable")).doCallRealMethod()
+                .when(productService).getProductSnapshots(any());
+        MvcResult failed = login(user, cookie);
+        
+        // the login itself succeeds, and the cookie is kept so the cart is not orphaned
+        assertThat(failed.getResponse().getHeaders(HttpHeaders.SET_COOKIE))
+                .noneMatch(header -> header.startsWith(GuestCartCookie.NAME + "="));
+        assertThat(guestCartStore.getQuantities(cookie.getValue())).containsExactly(Map.entry(product.getId(), 2));
+        assertThat(cartStore.getQuantity(user.getId(), product.getId())).isZero();
+        
+        login(user, cookie);
+        assertThat(guestCartStore.getQuantities(cookie.getValue())).isEmpty();
+        assertThat(cartStore.getQuantity(user.getId(), product.getId())).isEqualTo(2);
+    }
+    
+    private MvcResult addAsGuest(Cookie cookie, Product product, int quantity) throws Exception {
+        MockHttpServletRequestBuilder request = post("/cart/add")
+                .param("productId", product.getId().toString())
+                .param("quantity", String.valueOf(quantity))
+                .with(csrf());
+        if (cookie != null) {
+            request.cookie(cookie);
+        }
+        return mockMvc.perform(request)
+                .andExpect(redirectedUrl("/cart"))
+                .andReturn();
+    }
+    
+    private MvcResult login(User user, Cookie cookie) throws Exception {
+        return mockMvc.perform(post("/login")
+                        .param("username", user.getUsername())
+                        .param("password", PASSWORD)
+                        .cookie(cookie)
+                        .with(csrf()))
+                .andExpect(redirectedUrl("/"))
+                .andReturn();
+    }
+    
+    private Product newProduct(String name, int stock) {
+        return productService.saveProduct(new Product(name, "Guest cart", new BigDecimal("6.50"), stock,
+                Product.Category.OTHER));
+    }
+    
+    private User registerUser(String username) {
+        return userService.registerUser(new User(username, username + "@example.com", PASSWORD, "Guest", "Cart"));
+    }
+}
@@ -0,0 +1,141 @@
+package com.ecommerce.shoppingcart.controller;
+
+import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.Payment;
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.model.User;
+import com.ecommerce.shoppingcart.repository.PaymentRepository;
+import com.ecommerce.shoppingcart.repository.ProductRepository;
+import com.ecommerce.shoppingcart.service.CartService;
+import com.ecommerce.shoppingcart.service.OrderService;
+import com.ecommerce.shoppingcart.service.ProductService;
+import com.ecommerce.shoppingcart.service.StockReservationService;
+import com.ecommerce.shoppingcart.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+
+/**
+ * A payment form posted again, or posted for an order that was cancelled, must not
+ * take stock or charge the customer a second time, and released holds of a cancelled
+ * order must never be sold.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:paymentreplay;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PaymentReplayTest {
+    
+    private static final int STOCK = 5;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private StockReservationService stockReservationService;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private PaymentRepository paymentRepository;
+    
+    @Test
+    void confirmedThenCancelledOrderIsNotPaidAgain() throws Exception {
+        Product product = newProduct("Paid Once");
+        User buyer = buyer("replay-buyer");
+        Order order = placeOrder(buyer, product, 2);
+        
+        Payment payment = completedPayment(order);
+        orderService.confirmPayment(order.getId(), payment);
+        orderService.updateOrderStatus(order.getId(), Order.OrderStatus.CANCELLED);
+        assertThat(reload(product).getStockQuantity()).isEqualTo(STOCK - 2);
+        assertThat(reload(product).getReservedQuantity()).isZero();
+        
+        mockMvc.perform(post("/payment/process/" + order.getId())
+                        .param("paymentMethod", Payment.PaymentMethod.CREDIT_CARD.name())
+                        .param("paymentDetails", "4111111111111111:12/30:123")
+                        .with(user(buyer.getUsername()))
+                        .with(csrf()))
+                .andExpect(redirectedUrl("/orders/" + order.getId()))
+                .andExpect(flash().attributeExists("error"));
+        
+        assertThat(payments(order)).isEqualTo(1);
+        assertThat(reload(product).getStockQuantity()).isEqualTo(STOCK - 2);
+        assertThat(reload(product).getReservedQuantity()).isZero();
+        assertThatThrownBy(() -> orderService.holdStock(order.getId())).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> orderService.confirmPayment(order.getId(), payment))
+                .isInstanceOf(IllegalStateException.class);
+    }
+    
+    @Test
+    void releasedHoldsOfACancelledOrderAreNotSold() {
+        Product product = newProduct("Cancelled Before Payment");
+        Order order = placeOrder(buyer("cancel-buyer"), product, 3);
+        
+        orderService.updateOrderStatus(order.getId(), Order.OrderStatus.CANCELLED);
+        assertThat(reload(product).getReservedQuantity()).isZero();
+        
+        assertThatThrownBy(() -> stockReservationService.commit(order.getId()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("CANCELLED");
+        assertThat(reload(product).getStockQuantity()).isEqualTo(STOCK);
+        assertThat(reload(product).getReservedQuantity()).isZero();
+    }
+    
+    private Product newProduct(String name) {
+        return productService.saveProduct(new Product(name, "Payment replay", new BigDecimal("12.50"), STOCK,
+                Product.Category.OTHER));
+    }
+    
+    private User buyer(String username) {
+        return userService.registerUser(new User(username, username + "@example.com", "password",
+                "Replay", "Buyer"));
+    }
+    
+    private Order placeOrder(User buyer, Product product, int quantity) {
+        cartService.addToCart(buyer, product.getId(), quantity);
+        return orderService.createOrderFromCart(buyer, "1 Test Street");
+    }
+    
+    private Payment completedPayment(Order order) {
+        Payment payment = new Payment(order, order.getTotalAmount(), Payment.PaymentMethod.CREDIT_CARD);
+        payment.setTransactionId("TXN-REPLAY-" + order.getId());
+        payment.setPaymentStatus(Payment.PaymentStatus.COMPLETED);
+        return paymentRepository.save(payment);
+    }
+    
+    private long payments(Order order) {
+        return paymentRepository.findAll().stream()
+                .filter(payment -> payment.getOrder().getId().equals(order.getId()))
+                .count();
+    }
+    
+    private Product reload(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow();
+    }
+}
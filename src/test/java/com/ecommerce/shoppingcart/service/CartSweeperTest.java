@@ -0,0 +1,130 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.model.User;
+import com.ecommerce.shoppingcart.repository.CartItemRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * A sweep over more stale rows than fit in one chunk. Flushes and sweeps only run when
+ * the test calls them, so it decides which carts are clean when their rows go.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartsweeper;DB_CLOSE_DELAY=-1",
+        "app.cart.store.flush-interval-ms=3600000",
+        "app.cart.sweeper.initial-delay-ms=3600000",
+        "app.cart.sweeper.chunk-size=3",
+        "app.cart.sweeper.pause-ms=10"
+})
+@ActiveProfiles("test")
+class CartSweeperTest {
+    
+    private static final int STALE_USERS = 4;
+    
+    @Autowired
+    private CartSweeper cartSweeper;
+    
+    @Autowired
+    private CartStore cartStore;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Test
+    void staleRowsGoInChunksAndFreshRowsStay() throws Exception {
+        Product first = newProduct("Swept First");
+        Product second = newProduct("Swept Second");
+        Product third = newProduct("Added Late");
+        
+        List<User> stale = new ArrayList<>();
+        for (int i = 0; i < STALE_USERS; i++) {
+            stale.add(userWithCart("sweep-stale-" + i, first, second));
+        }
+        User fresh = userWithCart("sweep-fresh", first, second);
+        User returning = userWithCart("sweep-returning", first, second);
+        cartStore.flush();
+        
+        LocalDateTime longAgo = LocalDateTime.now().minusDays(60);
+        for (User user : stale) {
+            age(user, longAgo);
+        }
+        age(returning, longAgo);
+        // the returning user changes the cart after its rows went stale, before a flush
+        cartService.addToCart(returning, third.getId(), 1);
+        long loads = cartStore.getStats().loads();
+        
+        // ten stale rows in chunks of three
+        cartSweeper.sweep();
+        awaitChunks(4);
+        
+        assertThat(cartSweeper.getStats().rowsPurged()).isEqualTo(2L * (STALE_USERS + 1));
+        for (User user : stale) {
+            assertThat(cartItemRepository.findQuantitiesByUserId(user.getId())).isEmpty();
+            // the clean in-memory cart was dropped, so it is reloaded empty
+            assertThat(cartStore.getQuantity(user.getId(), first.getId())).isZero();
+        }
+        assertThat(cartStore.getStats().loads()).isEqualTo(loads + STALE_USERS);
+        assertThat(cartItemRepository.findQuantitiesByUserId(fresh.getId())).hasSize(2);
+        assertThat(cartStore.getQuantity(fresh.getId(), first.getId())).isEqualTo(1);
+        
+        // a cart in use is kept whole and written back by the next flush
+        assertThat(cartStore.getQuantity(returning.getId(), first.getId())).isEqualTo(1);
+        cartStore.flush();
+        assertThat(cartItemRepository.findQuantitiesByUserId(returning.getId())).hasSize(3);
+    }
+    
+    private User userWithCart(String username, Product... products) {
+        User user = userService.registerUser(new User(username, username + "@example.com", "password",
+                "Sweep", "Test"));
+        for (Product product : products) {
+            cartService.addToCart(user, product.getId(), 1);
+        }
+        return user;
+    }
+    
+    private void age(User user, LocalDateTime updatedAt) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                cartItemRepository.touchByUserId(user.getId(), updatedAt));
+    }
+    
+    private void awaitChunks(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (cartSweeper.getStats().chunks() < count) {
+            if (System.nanoTime() > deadline) {
+                fail("Sweep ran " + cartSweeper.getStats().chunks() + " of " + count + " chunks");
+            }
+            Thread.sleep(10);
+        }
+    }
+    
+    private Product newProduct(String name) {
+        return productService.saveProduct(new Product(name, "Cart sweeper", new BigDecimal("3.25"), 100,
+                Product.Category.OTHER));
+    }
+}
@@ -0,0 +1,195 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.model.User;
+import com.ecommerce.shoppingcart.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Checkouts through the group commit queue. The window is long enough that a burst
+ * started together lands in one batch, so the combined stock hold and its fallback
+ * to one order at a time are both exercised.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:groupcommit;DB_CLOSE_DELAY=-1",
+        "app.order.group-commit.enabled=true",
+        "app.order.group-commit.window-micros=200000",
+        "app.order.group-commit.max-batch=64"
+})
+@ActiveProfiles("test")
+class CheckoutGroupCommitTest {
+    
+    private static final int STOCK = 5;
+    private static final int BUYERS = 40;
+    
+    @Autowired
+    private CheckoutQueue checkoutQueue;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Test
+    void batchedCheckoutsSellExactlyTheStock() throws Exception {
+        Product product = newProduct("Batched Last Units", STOCK);
+        List<User> buyers = buyers("group-oversell-", BUYERS, product);
+        
+        List<Future<Order>> results = checkOutTogether(buyers, checkoutQueue);
+        List<Order> placed = placedOrders(results);
+        
+        assertThat(placed).hasSize(STOCK);
+        assertThat(reload(product).getReservedQuantity()).isEqualTo(STOCK);
+        assertThat(checkoutQueue.getStats().largestBatch()).isGreaterThan(1);
+    }
+    
+    @Test
+    void shortBatchFallsBackToOneResultPerOrder() throws Exception {
+        Product product = newProduct("Batched Short Item", 3);
+        List<User> buyers = buyers("group-short-", 6, product);
+        long shortBatches = checkoutQueue.getStats().shortBatches();
+        
+        List<Future<Order>> results = checkOutTogether(buyers, checkoutQueue);
+        List<Order> placed = placedOrders(results);
+        
+        // the six together are short, so each order holds its own unit in arrival order
+        assertThat(checkoutQueue.getStats().shortBatches()).isGreaterThan(shortBatches);
+        assertThat(placed).hasSize(3)
+                .allSatisfy(order -> assertThat(order.getOrderItems()).hasSize(1));
+        assertThat(reload(product).getReservedQuantity()).isEqualTo(3);
+        
+        // a rejected order leaves its buyer's cart as it was
+        List<Long> ordering = placed.stream().map(order -> order.getUser().getId()).toList();
+        for (User buyer : buyers) {
+            assertThat(cartService.getCartItemCount(buyer)).isEqualTo(ordering.contains(buyer.getId()) ? 0 : 1);
+        }
+    }
+    
+    @Test
+    void twoCheckoutsOfOneUserPlaceOneOrder() throws Exception {
+        Product product = newProduct("Batched Twice", STOCK);
+        User buyer = buyers("group-twice-", 1, product).get(0);
+        
+        List<Future<Order>> results = checkOutTogether(List.of(buyer, buyer), checkoutQueue);
+        
+        assertThat(placedOrders(results)).hasSize(1);
+        assertThat(reload(product).getReservedQuantity()).isEqualTo(1);
+    }
+    
+    @Test
+    void stoppingFailsTheQueuedCheckoutsInsteadOfHanging() throws Exception {
+        // a window of a minute keeps every checkout waiting in the queue or the batch
+        CheckoutQueue stalled = new CheckoutQueue(orderService, productService, transactionManager, true,
+                TimeUnit.MINUTES.toMicros(1), 64, 100, TimeUnit.MINUTES.toMillis(1));
+        stalled.start();
+        Product product = newProduct("Never Batched", STOCK);
+        List<User> buyers = buyers("group-stop-", 4, product);
+        
+        List<Future<Order>> results = checkOutTogether(buyers, stalled);
+        // the worker collects for a minute, so every checkout now waits in its batch
+        Thread.sleep(500);
+        assertThat(results).noneMatch(Future::isDone);
+        stalled.stop();
+        
+        for (Future<Order> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("A checkout went through a stopped queue");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(IllegalStateException.class)
+                        .hasMessageContaining("shutting down");
+            }
+        }
+        assertThat(reload(product).getReservedQuantity()).isZero();
+        
+        // once stopped, a checkout runs on the caller's thread
+        assertThat(stalled.placeOrder(buyers.get(0), "1 Test Street").getOrderItems()).hasSize(1);
+        assertThat(stalled.getStats().bypassed()).isEqualTo(1);
+    }
+    
+    private Product newProduct(String name, int stock) {
+        return productService.saveProduct(new Product(name, "Group commit", new BigDecimal("9.99"), stock,
+                Product.Category.OTHER));
+    }
+    
+    // Every buyer has one unit in the cart
+    private List<User> buyers(String usernamePrefix, int count, Product product) {
+        List<User> buyers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User buyer = userService.registerUser(new User(usernamePrefix + i, usernamePrefix + i + "@example.com",
+                    "password", "Buyer", String.valueOf(i)));
+            cartService.addToCart(buyer, product.getId(), 1);
+            buyers.add(buyer);
+        }
+        return buyers;
+    }
+    
+    private static List<Future<Order>> checkOutTogether(List<User> buyers, CheckoutQueue queue) {
+        ExecutorService pool = Executors.newFixedThreadPool(buyers.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Order>> results = new ArrayList<>();
+            for (User buyer : buyers) {
+                Callable<Order> checkout = () -> {
+                    start.await();
+                    return queue.placeOrder(buyer, "1 Test Street");
+                };
+                results.add(pool.submit(checkout));
+            }
+            start.countDown();
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    private static List<Order> placedOrders(List<Future<Order>> results) throws Exception {
+        List<Order> placed = new ArrayList<>();
+        for (Future<Order> result : results) {
+            try {
+                placed.add(result.get(30, TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                // the only acceptable failures are running out of stock and an emptied cart
+                assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class)
+                        .hasMessageMatching(".*(insufficient stock|Cart is empty).*");
+            }
+        }
+        return placed;
+    }
+    
+    private Product reload(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,141 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.model.User;
+import com.ecommerce.shoppingcart.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many buyers check out the last units of a product at the same moment. Exactly as
+ * many orders as there are units may go through, through the conditional UPDATE as
+ * well as the hot counters, and once those are paid nothing is left held.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CheckoutOversellTest {
+    
+    private static final int STOCK = 5;
+    private static final int BUYERS = 40;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private StockReservationService stockReservationService;
+    
+    @Autowired
+    private HotStockCounters hotStockCounters;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Test
+    void concurrentCheckoutsSellExactlyTheStock() throws Exception {
+        Product product = newProduct("Last Units");
+        
+        List<Order> placed = checkOutConcurrently("oversell-db-", product);
+        
+        assertThat(placed).hasSize(STOCK);
+        assertThat(reload(product).getReservedQuantity()).isEqualTo(STOCK);
+        
+        pay(placed);
+        assertThat(reload(product).getStockQuantity()).isZero();
+        assertThat(reload(product).getReservedQuantity()).isZero();
+    }
+    
+    @Test
+    void concurrentCheckoutsOfAHotProductSellExactlyTheStock() throws Exception {
+        Product product = newProduct("Flash Sale Item");
+        productService.setHotStock(product.getId(), true);
+        
+        List<Order> placed = checkOutConcurrently("oversell-hot-", product);
+        
+        assertThat(placed).hasSize(STOCK);
+        hotStockCounters.flush();
+        assertThat(reload(product).getReservedQuantity()).isEqualTo(STOCK);
+        
+        pay(placed);
+        productService.setHotStock(product.getId(), false);
+        assertThat(reload(product).getStockQuantity()).isZero();
+        assertThat(reload(product).getReservedQuantity()).isZero();
+    }
+    
+    private Product newProduct(String name) {
+        return productService.saveProduct(new Product(name, "Limited stock", new BigDecimal("9.99"), STOCK,
+                Product.Category.OTHER));
+    }
+    
+    // Every buyer has one unit in the cart; all of them check out at once
+    private List<Order> checkOutConcurrently(String usernamePrefix, Product product) throws Exception {
+        List<User> buyers = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            User buyer = userService.registerUser(new User(usernamePrefix + i, usernamePrefix + i + "@example.com",
+                    "password", "Buyer", String.valueOf(i)));
+            cartService.addToCart(buyer, product.getId(), 1);
+            buyers.add(buyer);
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Order>> results = new ArrayList<>();
+            for (User buyer : buyers) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return orderService.createOrderFromCart(buyer, "1 Test Street");
+                }));
+            }
+            start.countDown();
+            
+            List<Order> placed = new ArrayList<>();
+            for (Future<Order> result : results) {
+                try {
+                    placed.add(result.get(30, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    // the only acceptable failure is running out of stock
+                    assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class)
+                            .hasMessageContaining("insufficient stock");
+                }
+            }
+            return placed;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    // What paying an order does to its stock: the holds become sales
+    private void pay(List<Order> orders) {
+        for (Order order : orders) {
+            stockReservationService.commit(order.getId());
+        }
+    }
+    
+    private Product reload(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A 50-line checkout must not issue one statement per line. After a warm-up order has
+ * pulled the pooled sequence blocks and the product cache into a steady state, the
+ * measured checkout is checked per kind of statement. The data source is wrapped so
+ * that every JDBC round trip is counted, including the stock-hold batch, which runs
+ * as raw JDBC through doReturningWork and is not seen by the Hibernate statistics.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statements;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.outbox.relay.enabled=false",
+        "app.cart.store.flush-interval-ms=3600000",
+        "app.order.reservation.expire-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class CheckoutStatementCountTest {
+    
+    private static final int LINES = 50;
+    
+    // round trips and batched rows per lower-cased SQL string
+    private static final Map<String, Integer> ROUND_TRIPS = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> ROWS = new ConcurrentHashMap<>();
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Test
+    void fiftyLineCheckoutRunsAFixedNumberOfStatements() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            products.add(new Product("Batch Item " + i, "Checkout batching", new BigDecimal("5.00"), 100,
+                    Product.Category.OTHER));
+        }
+        products = productService.saveProducts(products);
+        User warmUp = buyerWithCart("statements-warm-up", products);
+        User buyer = buyerWithCart("statements-buyer", products);
+        
+        orderService.createOrderFromCart(warmUp, "1 Test Street");
+        
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        ROUND_TRIPS.clear();
+        ROWS.clear();
+        Order order = orderService.createOrderFromCart(buyer, "1 Test Street");
+        
+        assertThat(order.getOrderItems()).hasSize(LINES);
+        
+        // every line is held by its own conditional UPDATE, all sent in a single batch
+        assertThat(sum(ROUND_TRIPS, "update products set reserved_quantity")).isEqualTo(1);
+        assertThat(sum(ROWS, "update products set reserved_quantity")).isEqualTo(LINES);
+        
+        // the order, its items, its reservations and its outbox event: one insert round
+        // trip per table, however many rows it carries
+        assertThat(sum(ROUND_TRIPS, "insert into orders ")).isEqualTo(1);
+        assertThat(sum(ROUND_TRIPS, "insert into order_items ")).isEqualTo(1);
+        assertThat(sum(ROWS, "insert into order_items ")).isEqualTo(LINES);
+        assertThat(sum(ROUND_TRIPS, "insert into stock_reservations ")).isEqualTo(1);
+        assertThat(sum(ROWS, "insert into stock_reservations ")).isEqualTo(LINES);
+        assertThat(sum(ROUND_TRIPS, "insert into outbox_events ")).isEqualTo(1);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1 + LINES + LINES + 1);
+        assertThat(statistics.getFlushCount()).isEqualTo(1);
+        
+        // nothing else runs per line either: the product read, the cart delete and each
+        // sequence fetch take at most one round trip per pooled block of ids
+        assertThat(ROUND_TRIPS.values()).allSatisfy(count -> assertThat(count).isLessThanOrEqualTo(2));
+    }
+    
+    private User buyerWithCart(String username, List<Product> products) {
+        User buyer = userService.registerUser(new User(username, username + "@example.com", "password",
+                "Statement", "Counter"));
+        for (Product product : products) {
+            cartService.addToCart(buyer, product.getId(), 1);
+        }
+        return buyer;
+    }
+    
+    private static int sum(Map<String, Integer> counts, String prefix) {
+        return counts.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(prefix))
+                .mapToInt(Map.Entry::getValue)
+                .sum();
+    }
+    
+    @TestConfiguration
+    static class StatementCounting {
+        
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? countStatements(dataSource) : bean;
+                }
+            };
+        }
+        
+        private static DataSource countStatements(DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (proxy, method, args) -> {
+                Object result = invoke(dataSource, method, args);
+                return result instanceof Connection connection ? countStatements(connection) : result;
+            });
+        }
+        
+        private static Connection countStatements(Connection connection) {
+            return proxy(Connection.class, connection, (proxy, method, args) -> {
+                Object result = invoke(connection, method, args);
+                return result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")
+                        ? countRoundTrips(statement, ((String) args[0]).trim().toLowerCase(Locale.ROOT))
+                        : result;
+            });
+        }
+        
+        private static PreparedStatement countRoundTrips(PreparedStatement statement, String sql) {
+            int[] batchedRows = new int[1];
+            return proxy(PreparedStatement.class, statement, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "addBatch" -> batchedRows[0]++;
+                    case "executeBatch" -> {
+                        ROUND_TRIPS.merge(sql, 1, Integer::sum);
+                        ROWS.merge(sql, batchedRows[0], Integer::sum);
+                        batchedRows[0] = 0;
+                    }
+                    case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate" -> {
+                        ROUND_TRIPS.merge(sql, 1, Integer::sum);
+                        ROWS.merge(sql, 1, Integer::sum);
+                    }
+                    default -> {
+                    }
+                }
+                return invoke(statement, method, args);
+            });
+        }
+        
+        private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(CheckoutStatementCountTest.class.getClassLoader(), new Class<?>[] {type}, handler));
+        }
+        
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
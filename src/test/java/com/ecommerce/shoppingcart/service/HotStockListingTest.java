@@ -0,0 +1,90 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.FacetFilter;
+import com.ecommerce.shoppingcart.dto.ProductFacets;
+import com.ecommerce.shoppingcart.model.Order;
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The holds and sales of a hot product only reach its row when the counters are
+ * flushed. The listings must follow that write: a hot product that sells out drops out
+ * of the in-stock facet and changes the catalog version without leaving hot mode.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hotlisting;DB_CLOSE_DELAY=-1",
+        "app.inventory.hot.flush-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class HotStockListingTest {
+    
+    private static final int STOCK = 2;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private StockReservationService stockReservationService;
+    
+    @Autowired
+    private HotStockCounters hotStockCounters;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Test
+    void soldOutHotProductLeavesTheInStockFacet() {
+        Product product = productService.saveProduct(new Product("Hot Listing Item", "Flash sale",
+                new BigDecimal("4.99"), STOCK, Product.Category.TOYS));
+        productService.setHotStock(product.getId(), true);
+        try {
+            ProductFacets before = toys();
+            User buyer = userService.registerUser(new User("hot-listing-buyer", "hot-listing-buyer@example.com",
+                    "password", "Hot", "Listing"));
+            cartService.addToCart(buyer, product.getId(), STOCK);
+            Order order = orderService.createOrderFromCart(buyer, "1 Test Street");
+            
+            // the hold sits in the counters until they are flushed
+            assertThat(toys()).isEqualTo(before);
+            long version = catalogVersion.getVersion();
+            hotStockCounters.flush();
+            assertThat(toys().inStock()).isEqualTo(before.inStock() - 1);
+            assertThat(toys().outOfStock()).isEqualTo(before.outOfStock() + 1);
+            assertThat(productService.getInStockProducts()).extracting(Product::getId)
+                    .doesNotContain(product.getId());
+            assertThat(catalogVersion.getVersion()).isGreaterThan(version);
+            
+            // the sale takes the units off stock; the product stays out of stock
+            stockReservationService.commit(order.getId());
+            version = catalogVersion.getVersion();
+            hotStockCounters.flush();
+            assertThat(toys().inStock()).isEqualTo(before.inStock() - 1);
+            assertThat(catalogVersion.getVersion()).isGreaterThan(version);
+            assertThat(productService.getProductSnapshot(product.getId()).orElseThrow().availableQuantity())
+                    .isZero();
+        } finally {
+            productService.setHotStock(product.getId(), false);
+        }
+    }
+    
+    private ProductFacets toys() {
+        return productService.getFacets(FacetFilter.activeOnly(Product.Category.TOYS, null, null));
+    }
+}
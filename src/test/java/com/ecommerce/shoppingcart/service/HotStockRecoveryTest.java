@@ -0,0 +1,100 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Product;
+import com.ecommerce.shoppingcart.model.User;
+import com.ecommerce.shoppingcart.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A hot product's reserved_quantity lags its held reservations until the next flush,
+ * and a crash loses the difference. Startup, for the rows still flagged hot, and
+ * turning a product hot must set it back to what the reservations hold.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class HotStockRecoveryTest {
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private HotStockCounters hotStockCounters;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Test
+    void reservedQuantityIsRebuiltFromHeldReservations() {
+        Product product = productService.saveProduct(new Product("Recovered Item", "Held across a crash",
+                new BigDecimal("19.99"), 10, Product.Category.OTHER));
+        User buyer = userService.registerUser(new User("recovery-buyer", "recovery-buyer@example.com",
+                "password", "Recovery", "Buyer"));
+        cartService.addToCart(buyer, product.getId(), 3);
+        orderService.createOrderFromCart(buyer, "1 Test Street");
+        assertThat(reservedQuantity(product)).isEqualTo(3);
+        
+        // as if the counters had taken the hold but the JVM stopped before the flush
+        loseReservedUnits(product, 3);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                productRepository.setHotStock(product.getId(), true));
+        hotStockCounters.reconcileReservedQuantities();
+        assertThat(reservedQuantity(product)).isEqualTo(3);
+        assertThat(isFlaggedHot(product)).isFalse();
+        
+        // a row that was never hot cannot have missed a flush and is not visited
+        loseReservedUnits(product, 1);
+        hotStockCounters.reconcileReservedQuantities();
+        assertThat(reservedQuantity(product)).isEqualTo(2);
+        loseReservedUnits(product, -1); // put it back
+        
+        loseReservedUnits(product, 5);
+        productService.setHotStock(product.getId(), true);
+        try {
+            assertThat(reservedQuantity(product)).isEqualTo(3);
+            assertThat(isFlaggedHot(product)).isTrue();
+            assertThat(hotStockCounters.getStats().products())
+                    .filteredOn(sku -> sku.productId().equals(product.getId()))
+                    .singleElement()
+                    .satisfies(sku -> assertThat(sku.available()).isEqualTo(7));
+        } finally {
+            productService.setHotStock(product.getId(), false);
+        }
+        assertThat(reservedQuantity(product)).isEqualTo(3);
+        assertThat(isFlaggedHot(product)).isFalse();
+    }
+    
+    private void loseReservedUnits(Product product, int quantity) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                productRepository.applyStockChanges(product.getId(), 0, -quantity, LocalDateTime.now()));
+    }
+    
+    private int reservedQuantity(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getReservedQuantity();
+    }
+    
+    private boolean isFlaggedHot(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().isHotStock();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.OrderEvent;
+import com.ecommerce.shoppingcart.model.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * The bus with a ring far smaller than what is published, so publishers keep wrapping
+ * around and waiting on the slowest listener.
+ */
+class OrderEventBusTest {
+    
+    private static final int RING_SIZE = 8;
+    private static final int PUBLISHERS = 4;
+    private static final int EVENTS_PER_PUBLISHER = 500;
+    
+    @ParameterizedTest
+    @EnumSource(OrderEventBus.WaitStrategy.class)
+    void fullRingLosesAndRepeatsNothing(OrderEventBus.WaitStrategy waitStrategy) throws Exception {
+        RecordingListener fast = new RecordingListener(0);
+        RecordingListener slow = new RecordingListener(1);
+        OrderEventBus bus = new OrderEventBus(List.of(fast, slow), RING_SIZE, 4, waitStrategy);
+        bus.start();
+        
+        publishConcurrently(bus);
+        awaitReceived(fast, PUBLISHERS * EVENTS_PER_PUBLISHER);
+        awaitReceived(slow, PUBLISHERS * EVENTS_PER_PUBLISHER);
+        bus.stop();
+        
+        for (RecordingListener listener : List.of(fast, slow)) {
+            List<Long> received = listener.orderIds();
+            assertThat(received).hasSize(PUBLISHERS * EVENTS_PER_PUBLISHER).doesNotHaveDuplicates();
+            assertThat(listener.largestBatch).isLessThanOrEqualTo(4);
+            // each publisher's events arrive in the order it published them
+            for (int publisher = 0; publisher < PUBLISHERS; publisher++) {
+                int current = publisher;
+                assertThat(received.stream().filter(id -> id / 10_000 == current).toList())
+                        .isSorted()
+                        .hasSize(EVENTS_PER_PUBLISHER);
+            }
+        }
+        // both follow the one publication order
+        assertThat(slow.orderIds()).isEqualTo(fast.orderIds());
+        
+        OrderEventBus.Stats stats = bus.getStats();
+        assertThat(stats.capacity()).isEqualTo(RING_SIZE);
+        assertThat(stats.published()).isEqualTo(PUBLISHERS * EVENTS_PER_PUBLISHER);
+        assertThat(stats.producerWaits()).isPositive();
+        assertThat(stats.consumers()).allSatisfy(consumer -> {
+            assertThat(consumer.processed()).isEqualTo(PUBLISHERS * EVENTS_PER_PUBLISHER);
+            assertThat(consumer.lag()).isZero();
+        });
+    }
+    
+    @Test
+    void failingListenerKeepsReceivingAndDoesNotStallTheOthers() throws Exception {
+        RecordingListener healthy = new RecordingListener(0);
+        RecordingListener failing = new RecordingListener(0) {
+            @Override
+            public void onEvents(List<OrderEvent> events) {
+                super.onEvents(events);
+                if (events.stream().anyMatch(event -> event.orderId() % 7 == 0)) {
+                    throw new IllegalStateException("Listener failed");
+                }
+            }
+        };
+        OrderEventBus bus = new OrderEventBus(List.of(healthy, failing), RING_SIZE, 4,
+                OrderEventBus.WaitStrategy.BLOCKING);
+        bus.start();
+        
+        for (long i = 0; i < 200; i++) {
+            bus.publish(event(i));
+        }
+        awaitReceived(healthy, 200);
+        awaitReceived(failing, 200);
+        bus.stop();
+        
+        // a failed batch is not delivered again, and later events still arrive
+        assertThat(failing.orderIds()).isEqualTo(healthy.orderIds()).hasSize(200).doesNotHaveDuplicates();
+        OrderEventBus.ConsumerStats failingStats = bus.getStats().consumers().get(1);
+        assertThat(failingStats.failures()).isPositive();
+        assertThat(failingStats.processed()).isEqualTo(200);
+        assertThat(failingStats.lag()).isZero();
+        assertThat(bus.getStats().consumers().get(0).failures()).isZero();
+    }
+    
+    @Test
+    void stoppingDeliversWhatWasAlreadyPublished() throws Exception {
+        RecordingListener slow = new RecordingListener(2);
+        OrderEventBus bus = new OrderEventBus(List.of(slow), 64, 1, OrderEventBus.WaitStrategy.BLOCKING);
+        bus.start();
+        
+        for (long i = 0; i < 50; i++) {
+            bus.publish(event(i));
+        }
+        // one event per call at 2 ms each, so most are still in the ring here
+        assertThat(slow.orderIds()).hasSizeLessThan(50);
+        bus.stop();
+        
+        assertThat(slow.orderIds()).hasSize(50).isSorted();
+        assertThat(bus.getStats().consumers().get(0).lag()).isZero();
+    }
+    
+    private static void publishConcurrently(OrderEventBus bus) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(PUBLISHERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> publishers = new ArrayList<>();
+            for (int publisher = 0; publisher < PUBLISHERS; publisher++) {
+                int current = publisher;
+                publishers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < EVENTS_PER_PUBLISHER; i++) {
+                        bus.publish(event(orderId(current, i)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> publisher : publishers) {
+                publisher.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    private static void awaitReceived(RecordingListener listener, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (listener.orderIds().size() < count) {
+            if (System.nanoTime() > deadline) {
+                fail("Listener received " + listener.orderIds().size() + " of " + count + " events");
+            }
+            Thread.sleep(5);
+        }
+    }
+    
+    private static long orderId(int publisher, int index) {
+        return publisher * 10_000L + index;
+    }
+    
+    private static OrderEvent event(long orderId) {
+        return new OrderEvent.OrderStatusChanged(orderId, Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED);
+    }
+    
+    /**
+     * Copies each batch, since the bus reuses the list, optionally pausing per batch to
+     * fall behind the publishers
+     */
+    private static class RecordingListener implements OrderEventListener {
+        
+        private final long pauseMillis;
+        private final List<Long> orderIds = Collections.synchronizedList(new ArrayList<>());
+        private volatile int largestBatch;
+        
+        RecordingListener(long pauseMillis) {
+            this.pauseMillis = pauseMillis;
+        }
+        
+        @Override
+        public void onEvents(List<OrderEvent> events) {
+            largestBatch = Math.max(largestBatch, events.size());
+            events.forEach(event -> orderIds.add(event.orderId()));
+            if (pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        
+        List<Long> orderIds() {
+            synchronized (orderIds) {
+                return List.copyOf(orderIds);
+            }
+        }
+    }
+}
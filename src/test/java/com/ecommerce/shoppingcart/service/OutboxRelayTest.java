@@ -0,0 +1,226 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.dto.OutboxMessage;
+import com.ecommerce.shoppingcart.model.OutboxEvent;
+import com.ecommerce.shoppingcart.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Relays built here against the outbox table, with sinks that record what they were
+ * handed. The application's own relay is disabled so it claims nothing.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outboxrelay;DB_CLOSE_DELAY=-1",
+        "app.outbox.relay.enabled=false",
+        "app.outbox.purge-initial-delay-ms=3600000"
+})
+@ActiveProfiles("test")
+class OutboxRelayTest {
+    
+    private static final int MAX_ATTEMPTS = 3;
+    
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @BeforeEach
+    void emptyOutbox() {
+        outboxEventRepository.deleteAllInBatch();
+    }
+    
+    @Test
+    void claimsDeliversAndPurgesInChunks() throws Exception {
+        List<Long> ids = record(25);
+        RecordingSink sink = new RecordingSink(message -> false);
+        OutboxRelay relay = relay(sink, 10, 0, 4, 3);
+        
+        assertThat(relay.relayBatch()).isEqualTo(10);
+        assertThat(sink.deliveredIds()).containsExactlyElementsOf(ids.subList(0, 10));
+        assertThat(relay.relayBatch()).isEqualTo(10);
+        assertThat(relay.relayBatch()).isEqualTo(5);
+        assertThat(relay.relayBatch()).isZero();
+        assertThat(sink.deliveredIds()).containsExactlyElementsOf(ids);
+        assertThat(outboxEventRepository.findAll()).allMatch(event -> event.getDeliveredAt() != null);
+        assertThat(relay.getStats().delivered()).isEqualTo(25);
+        assertThat(relay.getStats().batches()).isEqualTo(3);
+        
+        // an event recorded after delivery is neither delivered nor purged yet
+        Long pending = record(1).get(0);
+        Thread.sleep(20);
+        
+        // three chunks of four per run
+        relay.purgeDelivered();
+        assertThat(outboxEventRepository.count()).isEqualTo(26 - 12);
+        relay.purgeDelivered();
+        relay.purgeDelivered();
+        assertThat(outboxEventRepository.findAll()).extracting(OutboxEvent::getId).containsExactly(pending);
+        assertThat(relay.getStats().purged()).isEqualTo(25);
+    }
+    
+    @Test
+    void twoRelaysDeliverEveryEventExactlyOnce() throws Exception {
+        List<Long> ids = record(400);
+        // a slow sink keeps each batch locked long enough for the other relay to skip it
+        RecordingSink first = new RecordingSink(message -> false, 5);
+        RecordingSink second = new RecordingSink(message -> false, 5);
+        OutboxRelay firstRelay = relay(first, 20, 60, 100, 10);
+        OutboxRelay secondRelay = relay(second, 20, 60, 100, 10);
+        
+        firstRelay.start();
+        secondRelay.start();
+        try {
+            awaitDelivered(first, second, ids.size());
+        } finally {
+            firstRelay.stop();
+            secondRelay.stop();
+        }
+        
+        List<Long> all = new ArrayList<>(first.deliveredIds());
+        all.addAll(second.deliveredIds());
+        assertThat(all).hasSize(ids.size()).containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(first.deliveredIds()).isNotEmpty();
+        assertThat(second.deliveredIds()).isNotEmpty();
+        assertThat(outboxEventRepository.findAll()).allMatch(event -> event.getDeliveredAt() != null);
+    }
+    
+    @Test
+    void eventTheSinkKeepsRejectingIsSetAside() throws Exception {
+        List<Long> ids = record(10);
+        Long poison = ids.get(4);
+        RecordingSink sink = new RecordingSink(message -> message.id().equals(poison));
+        OutboxRelay relay = relay(sink, 50, 0, 100, 10);
+        
+        // the batch fails, then the events around the poison one go through on their own
+        assertThat(relay.relayBatch()).isEqualTo(10);
+        assertThat(sink.deliveredIds()).hasSize(9).doesNotContain(poison);
+        
+        // alone in its batch it fails outright until the last attempt sets it aside
+        for (int attempt = 2; attempt <= MAX_ATTEMPTS; attempt++) {
+            assertThatThrownBy(relay::relayBatch).isInstanceOf(IllegalStateException.class);
+        }
+        OutboxEvent failed = outboxEventRepository.findById(poison).orElseThrow();
+        assertThat(failed.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(failed.getFailedAt()).isNotNull();
+        assertThat(failed.getDeliveredAt()).isNull();
+        assertThat(outboxEventRepository.countByFailedAtIsNotNull()).isEqualTo(1);
+        assertThat(relay.getStats().failedEvents()).isEqualTo(1);
+        
+        // later events flow past it, and a purge leaves it for inspection
+        assertThat(relay.relayBatch()).isZero();
+        Long later = record(1).get(0);
+        assertThat(relay.relayBatch()).isEqualTo(1);
+        Thread.sleep(20);
+        relay.purgeDelivered();
+        assertThat(outboxEventRepository.findAll()).extracting(OutboxEvent::getId).containsExactly(poison);
+        
+        List<Long> expected = new ArrayList<>(ids);
+        expected.remove(poison);
+        expected.add(later);
+        assertThat(sink.deliveredIds()).containsExactlyInAnyOrderElementsOf(expected)
+                .doesNotHaveDuplicates();
+    }
+    
+    @Test
+    void sinkThatIsDownCostsAnAttemptOnTwoEventsPerPoll() {
+        List<Long> ids = record(10);
+        RecordingSink sink = new RecordingSink(message -> true);
+        OutboxRelay relay = relay(sink, 50, 0, 100, 10);
+        
+        assertThatThrownBy(relay::relayBatch).isInstanceOf(IllegalStateException.class);
+        
+        Map<Long, Integer> attempts = outboxEventRepository.findAll().stream()
+                .collect(Collectors.toMap(OutboxEvent::getId, OutboxEvent::getAttempts));
+        assertThat(attempts).containsEntry(ids.get(0), 1).containsEntry(ids.get(1), 1);
+        assertThat(ids.subList(2, ids.size())).allMatch(id -> attempts.get(id) == 0);
+        assertThat(sink.deliveredIds()).isEmpty();
+    }
+    
+    private List<Long> record(int count) {
+        List<OutboxEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(new OutboxEvent(OutboxEvent.AggregateType.ORDER, (long) i, "OrderPlaced", "{}"));
+        }
+        return outboxEventRepository.saveAll(events).stream().map(OutboxEvent::getId).sorted().toList();
+    }
+    
+    private OutboxRelay relay(OutboxSink sink, int batchSize, long retentionMinutes, int purgeChunkSize,
+                              int maxPurgeChunks) {
+        return new OutboxRelay(outboxEventRepository, sink, transactionManager, true, batchSize, 10, 10,
+                MAX_ATTEMPTS, retentionMinutes, purgeChunkSize, maxPurgeChunks);
+    }
+    
+    private static void awaitDelivered(RecordingSink first, RecordingSink second, int count)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (first.deliveredIds().size() + second.deliveredIds().size() < count) {
+            if (System.nanoTime() > deadline) {
+                fail("Relays delivered " + (first.deliveredIds().size() + second.deliveredIds().size()) +
+                        " of " + count + " events");
+            }
+            Thread.sleep(20);
+        }
+        // room for a duplicate delivery to show up
+        Thread.sleep(200);
+    }
+    
+    /**
+     * Records the ids of the batches it accepts; throws for a batch holding a message
+     * the predicate rejects. A rejected batch records nothing, as its transaction rolls back.
+     */
+    private static class RecordingSink implements OutboxSink {
+        
+        private final Predicate<OutboxMessage> rejects;
+        private final long pauseMillis;
+        private final List<Long> deliveredIds = Collections.synchronizedList(new ArrayList<>());
+        
+        RecordingSink(Predicate<OutboxMessage> rejects) {
+            this(rejects, 0);
+        }
+        
+        RecordingSink(Predicate<OutboxMessage> rejects, long pauseMillis) {
+            this.rejects = rejects;
+            this.pauseMillis = pauseMillis;
+        }
+        
+        @Override
+        public void deliver(List<OutboxMessage> messages) {
+            if (messages.stream().anyMatch(rejects)) {
+                throw new IllegalStateException("Sink rejected a batch of " + messages.size());
+            }
+            if (pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted", e);
+                }
+            }
+            deliveredIds.addAll(messages.stream().map(OutboxMessage::id).toList());
+        }
+        
+        List<Long> deliveredIds() {
+            synchronized (deliveredIds) {
+                return List.copyOf(deliveredIds);
+            }
+        }
+    }
+}
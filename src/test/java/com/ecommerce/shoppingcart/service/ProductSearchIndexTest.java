@@ -0,0 +1,87 @@
+package com.ecommerce.shoppingcart.service;
+
+import com.ecommerce.shoppingcart.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * What the inverted index matches in place of the old LIKE '%keyword%' scans: whole
+ * terms and term prefixes, ANDed unless joined by OR, name hits ranked above
+ * description hits, and a bounded number of terms per prefix.
+ */
+class ProductSearchIndexTest {
+    
+    private ProductSearchIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.index(product(1L, "Wireless Headphones", "Over-ear, noise cancelling"));
+        index.index(product(2L, "Phone Case", "Fits most phones"));
+        index.index(product(3L, "Desk Lamp", "Warm light for a phone desk"));
+        index.index(product(4L, "Garden Hose", "Thirty metres of hose"));
+    }
+    
+    @Test
+    void termsMatchWholeWordsAndWordPrefixes() {
+        assertThat(index.search("phone")).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(index.search("hea")).containsExactly(1L);
+        assertThat(index.search("PHONES")).containsExactly(2L);
+        // LIKE matched inside words; the index does not
+        assertThat(index.search("phones")).doesNotContain(1L);
+        assertThat(index.search("ones")).isEmpty();
+    }
+    
+    @Test
+    void termsAreAndedUnlessJoinedByOr() {
+        assertThat(index.search("phone desk")).containsExactly(3L);
+        assertThat(index.search("lamp OR hose")).containsExactlyInAnyOrder(3L, 4L);
+        assertThat(index.search("lamp hose")).isEmpty();
+    }
+    
+    @Test
+    void nameHitsRankAboveDescriptionHits() {
+        assertThat(index.search("phone")).containsExactly(2L, 3L);
+    }
+    
+    @Test
+    void reindexingAndDeactivatingReplaceTheOldTerms() {
+        index.index(product(4L, "Garden Sprinkler", "Covers a whole lawn"));
+        assertThat(index.search("hose")).isEmpty();
+        assertThat(index.search("sprinkler")).containsExactly(4L);
+        
+        Product inactive = product(4L, "Garden Sprinkler", "Covers a whole lawn");
+        inactive.setActive(false);
+        index.index(inactive);
+        assertThat(index.search("sprinkler")).isEmpty();
+        assertThat(index.size()).isEqualTo(3);
+    }
+    
+    @Test
+    void fuzzyModeForgivesTypos() {
+        assertThat(index.search("headphnes")).isEmpty();
+        assertThat(index.search("headphnes", true)).containsExactly(1L);
+    }
+    
+    @Test
+    void shortPrefixesExpandToABoundedSetOfTheClosestTerms() {
+        index.index(product(100L, "Cat", "Plush toy"));
+        for (long i = 0; i < 100; i++) {
+            index.index(product(200L + i, "Catalogue" + i, "Printed"));
+        }
+        
+        assertThat(index.search("ca")).hasSize(64).contains(100L, 200L, 209L).doesNotContain(299L);
+        assertThat(index.search("catalogue")).hasSize(64);
+        assertThat(index.search("catalogue99")).containsExactly(299L);
+    }
+    
+    private static Product product(Long id, String name, String description) {
+        Product product = new Product(name, description, new BigDecimal("10.00"), 5, Product.Category.OTHER);
+        product.setId(id);
+        return product;
+    }
+}